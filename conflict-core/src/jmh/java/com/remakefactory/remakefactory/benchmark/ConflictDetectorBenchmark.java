@@ -0,0 +1,198 @@
+package com.remakefactory.remakefactory.benchmark;
+
+import com.remakefactory.remakefactory.util.recipe.conflict.ConflictDetector;
+import com.remakefactory.remakefactory.util.recipe.conflict.IConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.PlainConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.PortfolioResult;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeDump;
+import com.remakefactory.remakefactory.util.recipe.conflict.ScopeIndex;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveBudget;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveResult;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverPool;
+import com.remakefactory.remakefactory.util.recipe.conflict.SyntheticRecipes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConflictDetector} 的 JMH 基准测试，不依赖游戏，可以在命令行上直接运行 (见 build.gradle 中的 jmh 任务)。
+ * <p>
+ * 配方来源由 {@code corpus} 参数决定：
+ * <ul>
+ *     <li>{@code synthetic}：由 {@link SyntheticRecipes} 按 recipes、vocabulary、maxIngredients、density 和 seed 生成；</li>
+ *     <li>其他值：/ref conflict dump 写出的转储文件路径 (见 {@link RecipeDump})，取 {@code recipeType} 指定的配方类型，
+ *     为空时取配方最多的类型。此时合成参数被忽略。</li>
+ * </ul>
+ * 必须配方是范围中第一个不被其他配方覆盖的配方 (否则求解立即结束)；精确求解只在它之后的前 {@code exactCandidates} 个候选中进行，
+ * 并受 {@code nodeLimit} 限制，以免单次调用的耗时失控。增量检查针对 (去掉一部分成员的) 贪心结果和一组固定的探测配方。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflictDetectorBenchmark {
+
+    // 每次调用检查的探测配方数量
+    private static final int PROBES = 64;
+
+    @Param("synthetic")
+    public String corpus;
+
+    @Param("")
+    public String recipeType;
+
+    @Param({"1000", "10000"})
+    public int recipes;
+
+    @Param("2000")
+    public int vocabulary;
+
+    @Param("6")
+    public int maxIngredients;
+
+    @Param({"0.2", "0.6"})
+    public double density;
+
+    @Param("42")
+    public long seed;
+
+    @Param("40")
+    public int exactCandidates;
+
+    @Param("200000")
+    public long nodeLimit;
+
+    /** 求解线程池的并行度，0 表示默认值 (处理器数 - 1)。 */
+    @Param("0")
+    public int threads;
+
+    private List<IConflictRecipe> scope;
+    private ScopeIndex scopeIndex;
+    private IConflictRecipe mandatory;
+    private List<IConflictRecipe> exactSpace;
+    private Set<IConflictRecipe> safeSet;
+    private IConflictRecipe[] probes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SolverPool.configure(threads);
+        scope = corpus.equals("synthetic")
+                ? SyntheticRecipes.generate(seed, recipes, vocabulary, maxIngredients, density)
+                : loadDump(Path.of(corpus), recipeType);
+        scopeIndex = ScopeIndex.of(scope);
+
+        mandatory = scope.stream()
+                .filter(recipe -> !isCovered(recipe, scope))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Every recipe in the corpus is covered by another recipe"));
+        exactSpace = new ArrayList<>(exactCandidates + 1);
+        exactSpace.add(mandatory);
+        for (IConflictRecipe recipe : scope) {
+            if (exactSpace.size() > exactCandidates) break;
+            if (!recipe.equals(mandatory)) exactSpace.add(recipe);
+        }
+
+        // 贪心结果是极大的，集合外的配方都不能加入；从中取出一半探测配方 (子集仍然安全)，使两种结果都被测量
+        Random random = new Random(seed);
+        safeSet = new LinkedHashSet<>(ConflictDetector.findLargestConflictFreeSet_greedy(mandatory, scope, scope));
+        List<IConflictRecipe> members = new ArrayList<>(safeSet);
+        members.remove(mandatory);
+        Collections.shuffle(members, random);
+        List<IConflictRecipe> accepted = members.subList(0, Math.min(PROBES / 2, members.size()));
+        accepted.forEach(safeSet::remove);
+        List<IConflictRecipe> rejected = new ArrayList<>(scope);
+        rejected.removeAll(safeSet);
+        rejected.removeAll(accepted);
+        Collections.shuffle(rejected, random);
+
+        List<IConflictRecipe> pool = new ArrayList<>(accepted);
+        pool.addAll(rejected.subList(0, Math.min(PROBES - accepted.size(), rejected.size())));
+        if (pool.isEmpty()) pool.add(mandatory);
+        probes = new IConflictRecipe[PROBES];
+        for (int i = 0; i < PROBES; i++) probes[i] = pool.get(i % pool.size());
+    }
+
+    private static boolean isCovered(IConflictRecipe recipe, List<IConflictRecipe> scope) {
+        for (IConflictRecipe other : scope) {
+            if (!other.equals(recipe) && other.getInputs().isSubsetOf(recipe.getInputs())) return true;
+        }
+        return false;
+    }
+
+    private static List<IConflictRecipe> loadDump(Path file, String recipeType) throws IOException {
+        Map<String, List<PlainConflictRecipe>> types = RecipeDump.read(file);
+        List<PlainConflictRecipe> recipes = recipeType.isEmpty()
+                ? types.values().stream().max(Comparator.comparingInt(List::size)).orElse(List.of())
+                : types.getOrDefault(recipeType, List.of());
+        if (recipes.isEmpty()) throw new IllegalArgumentException("No recipes for type '" + recipeType + "' in " + file);
+        return new ArrayList<>(recipes);
+    }
+
+    // =================================================================================
+    // == 增量检查                                                                     ==
+    // =================================================================================
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int isAdditionSafe_collection() {
+        int safe = 0;
+        for (IConflictRecipe probe : probes) {
+            if (ConflictDetector.isAdditionSafe(safeSet, probe, scope)) safe++;
+        }
+        return safe;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int isAdditionSafe_scopeIndex() {
+        int safe = 0;
+        for (IConflictRecipe probe : probes) {
+            if (ConflictDetector.isAdditionSafe(safeSet, probe, scopeIndex)) safe++;
+        }
+        return safe;
+    }
+
+    @Benchmark
+    public boolean isSetSafelyCoexistent_collection() {
+        return ConflictDetector.isSetSafelyCoexistent(safeSet, scope);
+    }
+
+    @Benchmark
+    public boolean isSetSafelyCoexistent_scopeIndex() {
+        return ConflictDetector.isSetSafelyCoexistent(safeSet, scopeIndex);
+    }
+
+    // =================================================================================
+    // == 求解器                                                                       ==
+    // =================================================================================
+
+    @Benchmark
+    public Set<IConflictRecipe> greedy() {
+        return ConflictDetector.findLargestConflictFreeSet_greedy(mandatory, scope, scope);
+    }
+
+    @Benchmark
+    public Set<IConflictRecipe> greedy_multiThreaded() {
+        return ConflictDetector.findLargestConflictFreeSet_greedy_multiThreaded(mandatory, scope, scope);
+    }
+
+    @Benchmark
+    public PortfolioResult greedy_portfolio() {
+        return ConflictDetector.findLargestConflictFreeSet_portfolio(mandatory, scope, scopeIndex);
+    }
+
+    @Benchmark
+    public SolveResult exact() {
+        return ConflictDetector.findLargestConflictFreeSubset(mandatory, exactSpace, scope, SolveBudget.of(0, nodeLimit));
+    }
+
+    @Benchmark
+    public SolveResult exact_multiThreaded() {
+        return ConflictDetector.findLargestConflictFreeSubset_multiThreaded(mandatory, exactSpace, scope, SolveBudget.of(0, nodeLimit));
+    }
+}
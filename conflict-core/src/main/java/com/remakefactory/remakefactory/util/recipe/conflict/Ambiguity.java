@@ -0,0 +1,13 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.List;
+
+/**
+ * 一处歧义：{@code covered} 的输入被 {@code cover} 中配方的输入之并完全覆盖，
+ * 即只要 {@code cover} 中的配方都能运行，{@code covered} 也能被匹配。
+ *
+ * @param covered 被覆盖的配方。
+ * @param cover   覆盖它的配方 (一个时为两两冲突，多个时为组合冲突；没有输入的配方对应空列表)。
+ */
+public record Ambiguity(IConflictRecipe covered, List<IConflictRecipe> cover) {
+}
@@ -0,0 +1,13 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.List;
+
+/**
+ * 一次歧义扫描的结果 (见 {@link AmbiguityScanner})。
+ *
+ * @param ambiguities      找到的歧义，按范围内的顺序排列。
+ * @param truncatedRecipes 组合冲突的查找因搭档或报告数量上限而提前停止的配方数量；
+ *                         这些配方可能还有没有报告的组合冲突，为 0 时组合冲突的报告是完整的。
+ */
+public record AmbiguityScanResult(List<Ambiguity> ambiguities, int truncatedRecipes) {
+}
@@ -0,0 +1,127 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 在一个配方范围内查找歧义配方，用于整合包质量检查：
+ * <ul>
+ *     <li><b>两两冲突</b>：配方 r 的输入是另一个配方 s 输入的子集 (r ⊆ s)；</li>
+ *     <li><b>组合冲突</b>：r 不被任何单个配方覆盖，但被某两个配方的输入之并覆盖 (r ⊆ a + b)。</li>
+ * </ul>
+ * 覆盖者的供给必须与 r 的需求共享原料，因此只沿 {@link ScopeIndex} 的供给倒排表查找：
+ * 超集只需在 r 最罕见原料的倒排表中找；组合中的 b 必须含有"r 减去 a"后剩余部分中最罕见的原料。
+ * 为避免常见原料 (如水) 使扫描退化为平方级，每个配方考虑的搭档数量有上限，因此组合冲突的报告不保证完整；
+ * 达到上限的配方数量记录在结果中 ({@link AmbiguityScanResult#truncatedRecipes()})，报告中应当如实说明。
+ */
+public final class AmbiguityScanner {
+
+    // 每个配方考虑的组合搭档 a / b 的最大数量
+    private static final int MAX_PARTNERS = 512;
+    // 每个配方最多报告的组合冲突数量
+    private static final int MAX_COMBINATIONS_PER_RECIPE = 8;
+
+    private final ScopeIndex scopeIndex;
+    private final long[] dense;
+
+    private AmbiguityScanner(ScopeIndex scopeIndex) {
+        this.scopeIndex = scopeIndex;
+        this.dense = new long[scopeIndex.maxId() + 1];
+    }
+
+    /**
+     * 扫描整个范围。
+     *
+     * @param budget 预算，耗尽或被取消时返回已找到的部分结果；每个被检查的配方消耗一个节点。
+     * @return 找到的歧义 (按范围内的顺序排列) 以及组合冲突查找达到上限的配方数量。
+     */
+    public static AmbiguityScanResult scan(ScopeIndex scopeIndex, SolveBudget budget) {
+        return new AmbiguityScanner(scopeIndex).scan(budget);
+    }
+
+    private AmbiguityScanResult scan(SolveBudget budget) {
+        List<Ambiguity> found = new ArrayList<>();
+        int truncated = 0;
+        for (int i = 0; i < scopeIndex.size(); i++) {
+            if (budget.consumeNode()) break;
+            InputMultiset self = scopeIndex.inputs(i);
+            if (self.isEmpty()) {
+                // 没有输入的配方在任何情况下都能被匹配
+                if (scopeIndex.size() > 1) found.add(new Ambiguity(scopeIndex.recipe(i), List.of()));
+                continue;
+            }
+            Set<Integer> supersets = findSupersets(i, self, found);
+            if (findPairCovers(i, self, supersets, found)) truncated++;
+        }
+        return new AmbiguityScanResult(found, truncated);
+    }
+
+    private Set<Integer> findSupersets(int i, InputMultiset self, List<Ambiguity> found) {
+        Set<Integer> supersets = new HashSet<>();
+        for (int j : scopeIndex.supplyPostings(rarest(self, null))) {
+            if (j != i && self.isSubsetOf(scopeIndex.inputs(j))) {
+                supersets.add(j);
+                found.add(new Ambiguity(scopeIndex.recipe(i), List.of(scopeIndex.recipe(j))));
+            }
+        }
+        return supersets;
+    }
+
+    /**
+     * @return 是否因为某个上限而提前停止 (可能还有没有报告的组合冲突)。
+     */
+    private boolean findPairCovers(int i, InputMultiset self, Set<Integer> supersets, List<Ambiguity> found) {
+        Set<Long> reported = new HashSet<>();
+        boolean truncated = false;
+        int partners = 0;
+        for (int k = 0; k < self.size() && partners <= MAX_PARTNERS; k++) {
+            for (int a : scopeIndex.supplyPostings(self.id(k))) {
+                if (a == i || supersets.contains(a)) continue;
+                if (++partners > MAX_PARTNERS) {
+                    truncated = true;
+                    break;
+                }
+                InputMultiset first = scopeIndex.inputs(a);
+                first.accumulateInto(dense, 1);
+                try {
+                    // b 必须含有 a 没能满足的原料中最罕见的那一种
+                    int missing = rarest(self, first);
+                    if (missing < 0) continue;
+                    int seen = 0;
+                    for (int b : scopeIndex.supplyPostings(missing)) {
+                        if (b == i || b == a || supersets.contains(b)) continue;
+                        if (++seen > MAX_PARTNERS) {
+                            truncated = true;
+                            break;
+                        }
+                        if (!self.isCoveredBy(dense, 0, scopeIndex.inputs(b))) continue;
+                        long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                        if (!reported.add(key)) continue;
+                        found.add(new Ambiguity(scopeIndex.recipe(i), List.of(scopeIndex.recipe(a), scopeIndex.recipe(b))));
+                        if (reported.size() >= MAX_COMBINATIONS_PER_RECIPE) return true;
+                    }
+                } finally {
+                    first.accumulateInto(dense, -1);
+                }
+            }
+        }
+        return truncated;
+    }
+
+    /**
+     * self 的原料中在范围内最罕见的一种。如果给出了 {@code partial}，则只考虑 partial (已累加在 dense 中) 没能满足数量的原料。
+     */
+    private int rarest(InputMultiset self, InputMultiset partial) {
+        int best = -1;
+        int bestFrequency = Integer.MAX_VALUE;
+        for (int k = 0; k < self.size(); k++) {
+            int id = self.id(k);
+            if (partial != null && dense[id] >= self.count(k)) continue;
+            int frequency = scopeIndex.supplyFrequencyOf(id);
+            if (frequency < bestFrequency) {
+                best = id;
+                bestFrequency = frequency;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,162 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 单线程分支定界求解器：一次遍历即可找到能与必须配方安全共存的最大候选子集。
+ * <p>
+ * 安全性对子集封闭 (安全集合的任意子集仍然安全)，而"无法加入"对超集单调 (加入 c 到 S 不安全，则加入 c 到 S 的任意超集也不安全)。
+ * 因此每个节点只需把后续候选过滤为"仍可加入"的那部分，并用 {@code 当前大小 + 剩余可加入候选数} 作为上界：
+ * 上界不超过当前最优解 (incumbent) 时整棵子树被剪掉。开始前先用贪心结果作为初始最优解。
+ * <p>
+ * 搜索受 {@link SolveBudget} 约束：预算耗尽时返回目前的最优解，以及由未探索节点的上界得出的最优解上界。
+ * <p>
+ * 候选之间的两两子集关系预先计算为 {@link SubsetMatrix}，节点过滤时用一次位测试代替重复的多重集比较。
+ * <p>
+ * 检查和剪枝的次数先累加到求解器自己的 {@link SolverStats.Tally}，结束时合并进预算的 {@link SolverStats}。
+ * <p>
+ * 必须配方可以为 {@code null} (用于不含必须配方的连通分量)，此时从空集合开始搜索。
+ */
+final class BranchAndBoundSolver {
+
+    private final IConflictRecipe mandatoryRecipe;
+    private final List<IConflictRecipe> candidates;
+    private final ScopeIndex scopeIndex;
+    private final SolveBudget budget;
+    private final SolverStats.Tally tally = new SolverStats.Tally();
+
+    private UnionState state;
+    private IConflictRecipe[] pool;
+    private SubsetMatrix subsetMatrix;
+    // levelBuffers[d] 存放深度 d 的可加入候选 (pool 中的下标)
+    private int[][] levelBuffers;
+    private int[] currentSelection;
+    private int[] bestSelection;
+    private int bestSize;
+
+    BranchAndBoundSolver(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> candidates,
+                         Collection<IConflictRecipe> globalScope, SolveBudget budget) {
+        this.mandatoryRecipe = mandatoryRecipe;
+        this.budget = budget;
+        this.candidates = new ArrayList<>(candidates);
+        this.candidates.remove(mandatoryRecipe);
+        this.scopeIndex = ScopeIndex.of(globalScope);
+    }
+
+    SolveResult solve() {
+        state = new UnionState(scopeIndex);
+        if (mandatoryRecipe != null) {
+            state.push(mandatoryRecipe);
+            // 必须配方自己必须是安全的
+            if (state.hasExternalCover()) {
+                return new SolveResult(Set.of(mandatoryRecipe), 1, budget.nodesExplored());
+            }
+        }
+
+        state.countInto(tally);
+        // 根节点：只保留能与必须配方单独共存的候选，输入更"简单"的排在前面，以便尽早得到好的下界
+        List<IConflictRecipe> rootCandidates = new ArrayList<>();
+        for (IConflictRecipe candidate : candidates) {
+            if (state.canAdd(candidate)) rootCandidates.add(candidate);
+        }
+        rootCandidates.sort(Comparator.comparingInt((IConflictRecipe r) -> r.getInputs().size())
+                .thenComparingLong(r -> r.getInputs().totalCount()));
+        pool = rootCandidates.toArray(new IConflictRecipe[0]);
+        SolverStats stats = budget.stats();
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.SUBSET_MATRIX)) {
+            subsetMatrix = SubsetMatrix.compute(pool);
+        }
+        tally.add(SolverStats.Counter.SUBSET_CHECKS, (long) pool.length * Math.max(0, pool.length - 1));
+
+        int n = pool.length;
+        levelBuffers = new int[n + 1][];
+        levelBuffers[0] = new int[n];
+        for (int i = 0; i < n; i++) levelBuffers[0][i] = i;
+        currentSelection = new int[n];
+        bestSelection = new int[n];
+        bestSize = 0;
+
+        int unresolved;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.SEARCH)) {
+            seedWithGreedy();
+            // 预算耗尽时，未探索部分的上界与当前最优解中较大者即为可证明的上界
+            unresolved = expand(0, n);
+        }
+        int upperBound = Math.max(bestSize, unresolved);
+        tally.flushTo(stats);
+
+        Set<IConflictRecipe> result = new LinkedHashSet<>();
+        if (mandatoryRecipe != null) result.add(mandatoryRecipe);
+        for (int i = 0; i < bestSize; i++) result.add(pool[bestSelection[i]]);
+        return new SolveResult(result, upperBound + state.size(), budget.nodesExplored());
+    }
+
+    /**
+     * 用一次贪心遍历得到初始最优解，使上界剪枝从一开始就生效。
+     */
+    private void seedWithGreedy() {
+        long[] selected = new long[subsetMatrix.words()];
+        int size = 0;
+        for (int i = 0; i < pool.length; i++) {
+            if (subsetMatrix.conflictsWithAny(i, selected) || !state.canAddPairwiseCompatible(pool[i])) continue;
+            state.push(pool[i]);
+            selected[i >>> 6] |= 1L << i;
+            currentSelection[size++] = i;
+        }
+        System.arraycopy(currentSelection, 0, bestSelection, 0, size);
+        budget.reportImprovement(size - bestSize);
+        bestSize = size;
+        for (int i = 0; i < size; i++) state.pop();
+    }
+
+    /**
+     * 展开一个节点。当前状态中已压入 depth 个候选，levelBuffers[depth][0..length) 是仍可加入的候选。
+     *
+     * @return 因预算耗尽而未能探索的部分可能达到的最大大小；子树被完整搜索 (或剪枝) 时返回 0。
+     */
+    private int expand(int depth, int length) {
+        if (budget.consumeNode()) {
+            tally.increment(SolverStats.Counter.BUDGET_CUTOFFS);
+            return depth + length;
+        }
+        if (depth > bestSize) {
+            System.arraycopy(currentSelection, 0, bestSelection, 0, depth);
+            budget.reportImprovement(depth - bestSize);
+            bestSize = depth;
+        }
+        int[] cand = levelBuffers[depth];
+        int unresolved = 0;
+        for (int i = 0; i < length; i++) {
+            // 上界：当前大小 + 剩余候选数。不可能超过最优解时剪枝
+            if (depth + (length - i) <= bestSize) {
+                tally.increment(SolverStats.Counter.BOUND_PRUNES);
+                return unresolved;
+            }
+            if (budget.isExhausted()) {
+                tally.increment(SolverStats.Counter.BUDGET_CUTOFFS);
+                return Math.max(unresolved, depth + (length - i));
+            }
+
+            int chosen = cand[i];
+            state.push(pool[chosen]);
+            currentSelection[depth] = chosen;
+
+            // 过滤出在新状态下仍可加入的后续候选。它们已与之前选中的配方两两兼容，只需再与新选中的比较
+            int[] next = levelBuffers[depth + 1];
+            if (next == null || next.length < length) next = levelBuffers[depth + 1] = new int[length];
+            int nextLength = 0;
+            for (int j = i + 1; j < length; j++) {
+                int c = cand[j];
+                if (!subsetMatrix.conflicts(chosen, c) && state.canAddPairwiseCompatible(pool[c])) next[nextLength++] = c;
+            }
+
+            if (depth + 1 + nextLength > bestSize) {
+                unresolved = Math.max(unresolved, expand(depth + 1, nextLength));
+            } else {
+                tally.increment(SolverStats.Counter.CHILD_PRUNES);
+            }
+            state.pop();
+        }
+        return unresolved;
+    }
+}
@@ -0,0 +1,57 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 搜索前的廉价归约，只删除那些在任何最优解中都不可能出现 (或可以互相替代) 的候选：
+ * <ol>
+ *     <li>输入是必须配方输入的子集或超集的候选，两两检查就无法通过；</li>
+ *     <li>输入多重集完全相同的候选互为子集，至多选一个，且选哪一个都等价，只保留一个代表；</li>
+ *     <li>与必须配方单独组成的集合就已经不安全的候选：不安全性对超集单调，它也无法加入任何更大的集合。</li>
+ * </ol>
+ * 调用前必须已确认必须配方本身没有被外部配方覆盖。
+ */
+final class CandidateReducer {
+
+    /**
+     * 归约结果。
+     *
+     * @param candidates 归约后参与搜索的候选 (每个等价类一个代表)。
+     * @param report     各类归约的统计。
+     */
+    record Reduced(List<IConflictRecipe> candidates, ReductionReport report) {}
+
+    private CandidateReducer() {} // 静态工具类，无需实例化
+
+    static Reduced reduce(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> candidateSet, Collection<IConflictRecipe> globalScope) {
+        InputMultiset mandatoryInputs = mandatoryRecipe.getInputs();
+        int total = 0;
+        int subsetOfMandatory = 0;
+        int duplicates = 0;
+
+        // 1 & 2. 必须配方的子集/超集，以及相同输入的等价类
+        Map<InputMultiset, IConflictRecipe> representatives = new HashMap<>();
+        List<IConflictRecipe> kept = new ArrayList<>();
+        for (IConflictRecipe candidate : new LinkedHashSet<>(candidateSet)) {
+            if (candidate.equals(mandatoryRecipe)) continue;
+            total++;
+            InputMultiset in = candidate.getInputs();
+            if (in.isSubsetOf(mandatoryInputs) || mandatoryInputs.isSubsetOf(in)) {
+                subsetOfMandatory++;
+            } else if (representatives.putIfAbsent(in, candidate) != null) {
+                duplicates++;
+            } else {
+                kept.add(candidate);
+            }
+        }
+
+        // 3. 与必须配方单独共存就不安全的候选 (包括被"必须配方 + 候选"覆盖某个外部配方的情况)
+        UnionState state = new UnionState(ScopeIndex.of(globalScope));
+        state.push(mandatoryRecipe);
+        int before = kept.size();
+        kept.removeIf(candidate -> !state.canAdd(candidate));
+        int unsafeAlongside = before - kept.size();
+
+        return new Reduced(kept, new ReductionReport(total, subsetOfMandatory, unsafeAlongside, duplicates));
+    }
+}
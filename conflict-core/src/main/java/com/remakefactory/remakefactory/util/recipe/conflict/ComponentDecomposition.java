@@ -0,0 +1,97 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 连通分量分解：把候选配方和全局范围按"共享驻留原料"划分为互不相关的若干部分。
+ * <p>
+ * 冲突只可能发生在共享原料的配方之间：
+ * <ul>
+ *     <li>内部冲突 (某成员被其他成员组合而成) 只与含有该成员原料的配方有关；</li>
+ *     <li>外部配方只有当它的所有原料都出现在"必须配方 + 全部候选"的并集中时才可能被覆盖，
+ *     其余外部配方可以直接丢弃；剩下的外部配方同样按原料并入分量。</li>
+ * </ul>
+ * 因此各分量的安全集合之并仍然安全，整体最优解 = 各分量最优解之并，而每个分量可以独立 (并行) 求解。
+ * <p>
+ * 没有输入的配方是任意集合的子集，会把所有分量连在一起，此时不做分解。
+ */
+final class ComponentDecomposition {
+
+    /**
+     * 一个连通分量。
+     *
+     * @param containsMandatory 必须配方是否属于此分量。
+     * @param candidates        属于此分量的候选配方 (不含必须配方)。
+     * @param scope             属于此分量、且可能被覆盖的外部范围配方。
+     */
+    record Part(boolean containsMandatory, List<IConflictRecipe> candidates, List<IConflictRecipe> scope) {}
+
+    private ComponentDecomposition() {} // 静态工具类，无需实例化
+
+    /**
+     * 分解问题。
+     *
+     * @return 各连通分量；如果存在没有输入的配方而无法分解，返回 {@code null}。
+     */
+    static List<Part> split(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> candidates, Collection<IConflictRecipe> globalScope) {
+        if (mandatoryRecipe.getInputs().isEmpty()) return null;
+        int maxId = mandatoryRecipe.getInputs().maxId();
+        for (IConflictRecipe candidate : candidates) {
+            if (candidate.getInputs().isEmpty()) return null;
+            maxId = Math.max(maxId, candidate.getInputs().maxId());
+        }
+
+        // 1. "必须配方 + 全部候选"的存在性位图：原料不全在其中的外部配方永远不可能被覆盖
+        long[] presence = new long[(maxId + 64) >>> 6];
+        mandatoryRecipe.getInputs().markPresence(presence);
+        for (IConflictRecipe candidate : candidates) candidate.getInputs().markPresence(presence);
+        List<IConflictRecipe> relevantScope = new ArrayList<>();
+        for (IConflictRecipe recipe : globalScope) {
+            InputMultiset in = recipe.getInputs();
+            if (!in.isEmpty() && in.isPresentIn(presence)) relevantScope.add(recipe);
+        }
+
+        // 2. 以原料ID为节点的并查集：同一配方的所有原料属于同一分量
+        int[] parent = new int[maxId + 1];
+        for (int i = 0; i <= maxId; i++) parent[i] = i;
+        link(parent, mandatoryRecipe.getInputs());
+        for (IConflictRecipe candidate : candidates) link(parent, candidate.getInputs());
+        for (IConflictRecipe recipe : relevantScope) link(parent, recipe.getInputs());
+
+        // 3. 按分量根归类
+        Map<Integer, Part> parts = new LinkedHashMap<>();
+        int mandatoryRoot = find(parent, mandatoryRecipe.getInputs().id(0));
+        parts.put(mandatoryRoot, new Part(true, new ArrayList<>(), new ArrayList<>()));
+        for (IConflictRecipe candidate : candidates) {
+            if (candidate.equals(mandatoryRecipe)) continue;
+            partOf(parts, parent, candidate).candidates().add(candidate);
+        }
+        for (IConflictRecipe recipe : relevantScope) {
+            partOf(parts, parent, recipe).scope().add(recipe);
+        }
+        return new ArrayList<>(parts.values());
+    }
+
+    private static Part partOf(Map<Integer, Part> parts, int[] parent, IConflictRecipe recipe) {
+        int root = find(parent, recipe.getInputs().id(0));
+        return parts.computeIfAbsent(root, r -> new Part(false, new ArrayList<>(), new ArrayList<>()));
+    }
+
+    private static void link(int[] parent, InputMultiset in) {
+        // 供给包含需求以及标签展开出的原料，标签与其成员物品因此落在同一分量
+        in = in.supply();
+        int first = find(parent, in.id(0));
+        for (int j = 1; j < in.size(); j++) {
+            int root = find(parent, in.id(j));
+            if (root != first) parent[root] = first;
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]]; // 路径减半
+            x = parent[x];
+        }
+        return x;
+    }
+}
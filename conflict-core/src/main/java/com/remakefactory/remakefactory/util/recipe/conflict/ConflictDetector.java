@@ -0,0 +1,508 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 提供用于检测配方间冲突和寻找最大无冲突子集的方法。
+ * 此类实现了我们理论分析得出的最终版、超优化的算法。
+ */
+public final class ConflictDetector {
+
+    private ConflictDetector() {} // 静态工具类，无需实例化
+
+    // =================================================================================
+    // == 公共API：单线程 & 多线程版本                                                ==
+    // =================================================================================
+
+    /**
+     * [单线程] 从给定的候选列表中，找到能与一个必须配方安全共存的最大子集。
+     * 先按共享原料分解为互不相关的连通分量，再对每个分量做分支定界搜索，一次遍历即可得到可证明的最优解。
+     *
+     * @param mandatoryRecipe 必须存在的配方。
+     * @param candidateSet    待筛选的候选配方列表。
+     * @param globalScope     用于检查外部冲突的全局配方范围。
+     * @return 包含必须配方和候选列表最大子集的一个无冲突集合。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSubset(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> candidateSet,
+            Collection<IConflictRecipe> globalScope) {
+
+        return findLargestConflictFreeSubset(mandatoryRecipe, candidateSet, globalScope, SolveBudget.unlimited()).recipes();
+    }
+
+    /**
+     * [单线程 - 限时版] 同 {@link #findLargestConflictFreeSubset(IConflictRecipe, Collection, Collection)}，
+     * 但在预算耗尽时提前返回目前找到的最优解，以及可证明的最优解上界。
+     *
+     * @param budget 时间/节点预算，也可用于取消。
+     * @return 求解结果，包含无冲突集合、上界以及是否已证明最优。
+     */
+    public static SolveResult findLargestConflictFreeSubset(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> candidateSet,
+            Collection<IConflictRecipe> globalScope,
+            SolveBudget budget) {
+
+        return solveByComponents(mandatoryRecipe, candidateSet, globalScope, budget, false);
+    }
+
+    /**
+     * [多线程版] 从给定的候选列表中，找到能与一个必须配方安全共存的最大子集。
+     * 各连通分量在专用线程池上并行求解；分量内部同样使用 Fork/Join 并行地进行分支定界搜索，各线程共享当前最优解以互相剪枝。
+     *
+     * @param mandatoryRecipe 必须存在的配方。
+     * @param candidateSet    待筛选的候选配方列表。
+     * @param globalScope     用于检查外部冲突的全局配方范围。
+     * @return 包含必须配方和候选列表最大子集的一个无冲突集合。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSubset_multiThreaded(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> candidateSet,
+            Collection<IConflictRecipe> globalScope) {
+
+        return findLargestConflictFreeSubset_multiThreaded(mandatoryRecipe, candidateSet, globalScope, SolveBudget.unlimited()).recipes();
+    }
+
+    /**
+     * [多线程 - 限时版] 同 {@link #findLargestConflictFreeSubset_multiThreaded(IConflictRecipe, Collection, Collection)}，
+     * 但在预算耗尽时提前返回目前找到的最优解，以及可证明的最优解上界。
+     */
+    public static SolveResult findLargestConflictFreeSubset_multiThreaded(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> candidateSet,
+            Collection<IConflictRecipe> globalScope,
+            SolveBudget budget) {
+
+        return solveByComponents(mandatoryRecipe, candidateSet, globalScope, budget, true);
+    }
+
+    /**
+     * 先做归约 (见 {@link CandidateReducer})，再把问题分解为连通分量后分别求解，最后合并各分量的最优解。
+     * 最优解大小与上界都是各分量之和。
+     */
+    private static SolveResult solveByComponents(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> candidateSet,
+            Collection<IConflictRecipe> globalScope,
+            SolveBudget budget,
+            boolean multiThreaded) {
+
+        // 必须配方自身被某个外部配方覆盖时，它无法与任何配方共存 (这一检查不能按分量进行)
+        InputMultiset mandatoryInputs = mandatoryRecipe.getInputs();
+        for (IConflictRecipe externalRecipe : globalScope) {
+            if (!externalRecipe.equals(mandatoryRecipe) && externalRecipe.getInputs().isSubsetOf(mandatoryInputs)) {
+                return new SolveResult(Set.of(mandatoryRecipe), 1, 0);
+            }
+        }
+
+        // 归约：删除不可能被选中的候选，相同输入的候选只保留一个代表
+        SolverStats stats = budget.stats();
+        CandidateReducer.Reduced reduced;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.REDUCE)) {
+            reduced = CandidateReducer.reduce(mandatoryRecipe, candidateSet, globalScope);
+        }
+        List<IConflictRecipe> candidates = reduced.candidates();
+
+        List<ComponentDecomposition.Part> parts;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.DECOMPOSE)) {
+            parts = ComponentDecomposition.split(mandatoryRecipe, candidates, globalScope);
+        }
+        if (parts == null || parts.size() == 1) {
+            SolveResult result = solvePart(mandatoryRecipe, candidates, globalScope, budget, multiThreaded);
+            return new SolveResult(result.recipes(), result.upperBound(), result.nodesExplored(), reduced.report());
+        }
+
+        List<SolveResult> results = new ArrayList<>(parts.size());
+        if (multiThreaded) {
+            List<ForkJoinTask<SolveResult>> tasks = new ArrayList<>(parts.size());
+            for (ComponentDecomposition.Part part : parts) {
+                tasks.add(SolverPool.get().submit(() -> solvePart(part, mandatoryRecipe, budget, true)));
+            }
+            for (ForkJoinTask<SolveResult> task : tasks) results.add(task.join());
+        } else {
+            for (ComponentDecomposition.Part part : parts) results.add(solvePart(part, mandatoryRecipe, budget, false));
+        }
+
+        Set<IConflictRecipe> merged = new LinkedHashSet<>();
+        merged.add(mandatoryRecipe);
+        int upperBound = 0;
+        for (SolveResult result : results) {
+            merged.addAll(result.recipes());
+            upperBound += result.upperBound();
+        }
+        return new SolveResult(merged, upperBound, budget.nodesExplored(), reduced.report());
+    }
+
+    private static SolveResult solvePart(ComponentDecomposition.Part part, IConflictRecipe mandatoryRecipe, SolveBudget budget, boolean multiThreaded) {
+        // 不含必须配方的分量从空集合开始搜索
+        IConflictRecipe base = part.containsMandatory() ? mandatoryRecipe : null;
+        return solvePart(base, part.candidates(), part.scope(), budget, multiThreaded);
+    }
+
+    private static SolveResult solvePart(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> candidates,
+                                         Collection<IConflictRecipe> scope, SolveBudget budget, boolean multiThreaded) {
+        return multiThreaded
+                ? new ParallelBranchAndBoundSolver(mandatoryRecipe, candidates, scope, budget).solve()
+                : new BranchAndBoundSolver(mandatoryRecipe, candidates, scope, budget).solve();
+    }
+
+    /**
+     * [贪心算法] 从一个全局搜索空间中，找到一个包含必须配方的、大的无冲突集合。
+     * 速度快，但不保证找到的集合是绝对最大的。
+     *
+     * @param mandatoryRecipe 必须存在的配方。
+     * @param searchSpace     用于搜索的全局空间 (例如，机器内的所有配方)。
+     * @param globalScope     通常与 searchSpace 相同，用于检查外部冲突。
+     * @return 一个大的无冲突集合。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSet_greedy(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            Collection<IConflictRecipe> globalScope) {
+
+        // 倒排索引只构建一次，之后每次增量检查只扫描与候选配方共享原料的外部配方
+        UnionState state = new UnionState(ScopeIndex.of(globalScope));
+        state.push(mandatoryRecipe);
+
+        // 初始检查
+        if (state.hasExternalCover()) {
+            return state.toSet();
+        }
+
+        // 使用增量检查来优化性能：并集随着每次接受而累加，无需重新构建
+        for (IConflictRecipe candidate : greedyOrder(mandatoryRecipe, searchSpace)) {
+            state.tryPush(candidate); // 贪心地接受这个安全的添加
+        }
+        return state.toSet();
+    }
+
+    /**
+     * [贪心算法 - 多线程版] 与 {@link #findLargestConflictFreeSet_greedy} 得到完全相同的集合，
+     * 但在专用线程池上并发地检查接下来一个窗口内的候选 (见 {@link WindowedParallelGreedy})。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSet_greedy_multiThreaded(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            Collection<IConflictRecipe> globalScope) {
+
+        UnionState state = new UnionState(ScopeIndex.of(globalScope));
+        state.push(mandatoryRecipe);
+        if (state.hasExternalCover()) {
+            return state.toSet();
+        }
+        return WindowedParallelGreedy.run(state, greedyOrder(mandatoryRecipe, searchSpace));
+    }
+
+    /**
+     * 贪心的候选顺序。启发式策略：优先尝试添加输入更“简单”的配方 (稳定排序，相同时保持原有顺序)。
+     */
+    private static List<IConflictRecipe> greedyOrder(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> searchSpace) {
+        List<IConflictRecipe> candidates = new ArrayList<>(searchSpace);
+        candidates.removeIf(r -> r.equals(mandatoryRecipe));
+        candidates.sort(Comparator.comparingInt(r -> r.getInputs().size()));
+        return candidates;
+    }
+
+    /**
+     * [局部搜索] 以贪心结果为起点，在预算内用 (1,2)-交换、禁忌扰动和随机重启不断改进 (见 {@link LocalSearchOptimizer})。
+     * 适用于搜索空间很大、无法精确求解的情况；结果不会小于贪心结果，但同样不保证最大。
+     *
+     * @param mandatoryRecipe 必须存在的配方。
+     * @param searchSpace     用于搜索的全局空间 (例如，机器内的所有配方)。
+     * @param globalScope     通常与 searchSpace 相同，用于检查外部冲突。
+     * @param budget          时间/节点预算；每一轮改进消耗一个节点。
+     * @return 一个大的无冲突集合。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSet_localSearch(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            Collection<IConflictRecipe> globalScope,
+            SolveBudget budget) {
+
+        Set<IConflictRecipe> greedy = findLargestConflictFreeSet_greedy_multiThreaded(mandatoryRecipe, searchSpace, globalScope);
+        return findLargestConflictFreeSet_localSearch(mandatoryRecipe, greedy, searchSpace, globalScope, budget);
+    }
+
+    /**
+     * [局部搜索] 同 {@link #findLargestConflictFreeSet_localSearch(IConflictRecipe, Collection, Collection, SolveBudget)}，
+     * 但从调用方给出的安全集合 (例如 {@link #findLargestConflictFreeSet_portfolio} 的结果) 出发。
+     *
+     * @param initialSet 起点，必须包含必须配方且是安全的。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSet_localSearch(
+            IConflictRecipe mandatoryRecipe,
+            Set<IConflictRecipe> initialSet,
+            Collection<IConflictRecipe> searchSpace,
+            Collection<IConflictRecipe> globalScope,
+            SolveBudget budget) {
+
+        return findLargestConflictFreeSet_localSearch(mandatoryRecipe, initialSet, searchSpace, ScopeIndex.of(globalScope), budget);
+    }
+
+    /**
+     * [局部搜索 - 索引版] 使用预先构建 (例如由 {@link RecipeTypeIndexCache} 缓存) 的范围索引。
+     */
+    public static Set<IConflictRecipe> findLargestConflictFreeSet_localSearch(
+            IConflictRecipe mandatoryRecipe,
+            Set<IConflictRecipe> initialSet,
+            Collection<IConflictRecipe> searchSpace,
+            ScopeIndex scopeIndex,
+            SolveBudget budget) {
+
+        try (SolverStats.Timer timer = budget.stats().time(SolverStats.Phase.LOCAL_SEARCH)) {
+            LocalSearchOptimizer optimizer = new LocalSearchOptimizer(mandatoryRecipe, searchSpace, scopeIndex, budget, mandatoryRecipe.hashCode());
+            return optimizer.improve(initialSet);
+        }
+    }
+
+    /**
+     * [贪心组合] 在专用线程池上并发运行多种排序策略的贪心 (见 {@link GreedyHeuristic})，保留最大的结果。
+     * 线程足够多时耗时与单次贪心相当，结果不会小于 {@link #findLargestConflictFreeSet_greedy}。
+     *
+     * @param mandatoryRecipe 必须存在的配方。
+     * @param searchSpace     用于搜索的全局空间 (例如，机器内的所有配方)。
+     * @param globalScope     通常与 searchSpace 相同，用于检查外部冲突。
+     * @return 最大的结果以及得到它的排序策略。
+     */
+    public static PortfolioResult findLargestConflictFreeSet_portfolio(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            Collection<IConflictRecipe> globalScope) {
+
+        return findLargestConflictFreeSet_portfolio(mandatoryRecipe, searchSpace, ScopeIndex.of(globalScope));
+    }
+
+    /**
+     * [贪心组合 - 索引版] 使用预先构建 (例如由 {@link RecipeTypeIndexCache} 缓存) 的范围索引。
+     */
+    public static PortfolioResult findLargestConflictFreeSet_portfolio(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            ScopeIndex scopeIndex) {
+
+        return GreedyPortfolio.run(mandatoryRecipe, searchSpace, scopeIndex, null, SolveBudget.unlimited());
+    }
+
+    /**
+     * [贪心组合 - 预算版] 同 {@link #findLargestConflictFreeSet_portfolio(IConflictRecipe, Collection, ScopeIndex)}，
+     * 并把耗时和各次贪心的检查次数记录到预算附带的统计中。
+     * 预算耗尽 (超时或被取消) 时各次贪心停止加入候选，返回目前最大的部分结果 (仍然是安全的)。
+     */
+    public static PortfolioResult findLargestConflictFreeSet_portfolio(
+            IConflictRecipe mandatoryRecipe,
+            Collection<IConflictRecipe> searchSpace,
+            ScopeIndex scopeIndex,
+            SolveBudget budget) {
+
+        try (SolverStats.Timer timer = budget.stats().time(SolverStats.Phase.GREEDY)) {
+            return GreedyPortfolio.run(mandatoryRecipe, searchSpace, scopeIndex, budget.stats(), budget);
+        }
+    }
+
+    /**
+     * [冲突解释] 为每个未被选中的候选提取一个删除极小的冲突证据 (见 {@link ConflictExplainer})。
+     *
+     * @param finalSet    求解得到的安全集合。
+     * @param rejected    需要解释的候选。
+     * @param globalScope 求解时使用的全局范围。
+     * @return 按 {@code rejected} 的顺序排列的证据；可以安全加入的候选没有证据。
+     */
+    public static List<ConflictWitness> explainRejections(
+            Set<IConflictRecipe> finalSet,
+            Collection<IConflictRecipe> rejected,
+            Collection<IConflictRecipe> globalScope) {
+
+        return explainRejections(finalSet, rejected, ScopeIndex.of(globalScope));
+    }
+
+    /**
+     * [冲突解释 - 索引版] 使用预先构建 (例如由 {@link RecipeTypeIndexCache} 缓存) 的范围索引。
+     */
+    public static List<ConflictWitness> explainRejections(
+            Set<IConflictRecipe> finalSet,
+            Collection<IConflictRecipe> rejected,
+            ScopeIndex scopeIndex) {
+
+        UnionState state = new UnionState(scopeIndex);
+        for (IConflictRecipe recipe : finalSet) state.push(recipe);
+        ConflictExplainer explainer = new ConflictExplainer(state);
+        List<ConflictWitness> witnesses = new ArrayList<>();
+        for (IConflictRecipe recipe : rejected) {
+            if (finalSet.contains(recipe)) continue;
+            ConflictWitness witness = explainer.explain(recipe);
+            if (witness != null) witnesses.add(witness);
+        }
+        return witnesses;
+    }
+
+    // =================================================================================
+    // == 核心验证逻辑 (包含增量检查优化)                                             ==
+    // =================================================================================
+
+    /**
+     * [全量检查] 验证一个给定的配方集合是否是强无冲突的。
+     * 这是最基础、最完整的验证，但性能开销较大。
+     */
+    public static boolean isSetSafelyCoexistent(Set<IConflictRecipe> recipeSet, Collection<IConflictRecipe> globalScope) {
+        if (recipeSet.size() <= 1) return true;
+
+        UnionBuffer totalUnion = UnionBuffer.acquire(recipeSet, null);
+        totalUnion.addAll(recipeSet);
+        try {
+            // 阶段一: 内部冲突检查
+            if (hasInternalConflict(recipeSet, null, totalUnion)) return false;
+
+            // 阶段二: 外部冲突检查 (先用存在性签名排除绝大多数外部配方)
+            for (IConflictRecipe externalRecipe : globalScope) {
+                InputMultiset externalInputs = externalRecipe.getInputs();
+                if (!externalInputs.isPresentIn(totalUnion.presence)) continue;
+                if (!recipeSet.contains(externalRecipe)) {
+                    if (externalInputs.isCoveredBy(totalUnion.counts, 0)) return false;
+                }
+            }
+            return true;
+        } finally {
+            totalUnion.clear(recipeSet, null);
+        }
+    }
+
+    /**
+     * [全量检查 - 索引版] 与 {@link #isSetSafelyCoexistent(Set, Collection)} 等价，
+     * 但外部冲突检查通过预先构建的 {@link ScopeIndex} 完成，只扫描原料种类数不超过并集的配方。
+     */
+    public static boolean isSetSafelyCoexistent(Set<IConflictRecipe> recipeSet, ScopeIndex scopeIndex) {
+        if (recipeSet.size() <= 1) return true;
+
+        UnionBuffer totalUnion = UnionBuffer.acquire(recipeSet, null);
+        totalUnion.addAll(recipeSet);
+        try {
+            if (hasInternalConflict(recipeSet, null, totalUnion)) return false;
+            return scopeIndex.findCovered(totalUnion.counts, totalUnion.presence, totalUnion.distinct(), null,
+                    scopeIndex.maskOf(recipeSet), -1) < 0;
+        } finally {
+            totalUnion.clear(recipeSet, null);
+        }
+    }
+
+    /**
+     * [增量检查] 验证向一个已知的安全集合中添加一个新配方后，新集合是否仍然安全。
+     * 比全量检查性能更高。
+     */
+    public static boolean isAdditionSafe(Set<IConflictRecipe> safeSet, IConflictRecipe newRecipe, Collection<IConflictRecipe> globalScope) {
+        if (hasPairwiseConflict(safeSet, newRecipe)) return false;
+
+        // 新集合的总并集 = 旧集合并集 + 新配方
+        UnionBuffer newTotalUnion = UnionBuffer.acquire(safeSet, newRecipe);
+        newTotalUnion.addAll(safeSet);
+        newTotalUnion.add(newRecipe.getInputs());
+        try {
+            // 2. 检查新集合的内部冲突 (只需检查新配方和旧配方组合的情况)
+            if (hasInternalConflict(safeSet, newRecipe, newTotalUnion)) return false;
+
+            // 3. 检查新集合的外部冲突 (先用存在性签名排除绝大多数外部配方)
+            for (IConflictRecipe externalRecipe : globalScope) {
+                InputMultiset externalInputs = externalRecipe.getInputs();
+                if (!externalInputs.isPresentIn(newTotalUnion.presence)) continue;
+                if (!externalRecipe.equals(newRecipe) && !safeSet.contains(externalRecipe)) {
+                    if (externalInputs.isCoveredBy(newTotalUnion.counts, 0)) return false;
+                }
+            }
+            return true;
+        } finally {
+            newTotalUnion.clear(safeSet, newRecipe);
+        }
+    }
+
+    /**
+     * [增量检查 - 索引版] 与 {@link #isAdditionSafe(Set, IConflictRecipe, Collection)} 等价，
+     * 但要求 {@code safeSet} 相对于索引范围确实是安全的：此时只有含有新配方某种原料的外部配方才可能被新近覆盖，
+     * 因此只需沿新配方各原料的倒排表检查。求解器内部应直接复用 {@link UnionState}，而不是反复调用此方法。
+     */
+    public static boolean isAdditionSafe(Set<IConflictRecipe> safeSet, IConflictRecipe newRecipe, ScopeIndex scopeIndex) {
+        UnionState state = new UnionState(scopeIndex);
+        for (IConflictRecipe recipe : safeSet) state.push(recipe);
+        return state.canAdd(newRecipe);
+    }
+
+    /**
+     * 新配方不能是任何旧配方的子集，反之亦然。
+     */
+    private static boolean hasPairwiseConflict(Set<IConflictRecipe> safeSet, IConflictRecipe newRecipe) {
+        InputMultiset newInputs = newRecipe.getInputs();
+        for (IConflictRecipe oldRecipe : safeSet) {
+            InputMultiset oldInputs = oldRecipe.getInputs();
+            if (newInputs.isSubsetOf(oldInputs) || oldInputs.isSubsetOf(newInputs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 内部冲突：集合中某个配方被"总并集减去它自身"覆盖，即它能由其它配方的输入组合而成。
+     * {@code union} 必须已经包含 {@code recipeSet} 以及 {@code extraRecipe} (如果有)。
+     */
+    private static boolean hasInternalConflict(Set<IConflictRecipe> recipeSet, IConflictRecipe extraRecipe, UnionBuffer union) {
+        if (extraRecipe != null && extraRecipe.getInputs().isCoveredBy(union.counts, 1)) return true;
+        for (IConflictRecipe recipe : recipeSet) {
+            if (recipe.getInputs().isCoveredBy(union.counts, 1)) return true;
+        }
+        return false;
+    }
+
+    // =================================================================================
+    // == 辅助方法 (多重集操作)                                                       ==
+    // =================================================================================
+
+    /**
+     * 稠密并集累加器：以驻留ID为下标的数量数组，以及与之对应的存在性位图。
+     * 每个线程复用一个实例，使用方在结束前必须调用 {@link #clear}，保证缓冲区归零。
+     */
+    private static final class UnionBuffer {
+        private static final ThreadLocal<UnionBuffer> BUFFER = ThreadLocal.withInitial(UnionBuffer::new);
+
+        long[] counts = new long[0];
+        long[] presence = new long[0];
+
+        /**
+         * 获取当前线程的缓冲区，保证其长度足以容纳给定配方的所有原料ID。
+         */
+        static UnionBuffer acquire(Collection<IConflictRecipe> set, IConflictRecipe extra) {
+            int required = extra == null ? 0 : extra.getInputs().maxId() + 1;
+            for (IConflictRecipe recipe : set) {
+                required = Math.max(required, recipe.getInputs().maxId() + 1);
+            }
+            UnionBuffer buffer = BUFFER.get();
+            if (buffer.counts.length < required) {
+                int capacity = Math.max(required, IngredientInterner.size());
+                buffer.counts = new long[capacity];
+                buffer.presence = new long[(capacity + 63) >>> 6];
+            }
+            return buffer;
+        }
+
+        int distinct() {
+            int distinct = 0;
+            for (long word : presence) distinct += Long.bitCount(word);
+            return distinct;
+        }
+
+        void add(InputMultiset inputs) {
+            inputs.accumulateInto(counts, 1);
+            inputs.markPresence(presence);
+        }
+
+        void addAll(Collection<IConflictRecipe> set) {
+            for (IConflictRecipe recipe : set) add(recipe.getInputs());
+        }
+
+        /** 撤销此前累加的全部配方，使缓冲区恢复为全零。 */
+        void clear(Collection<IConflictRecipe> set, IConflictRecipe extra) {
+            for (IConflictRecipe recipe : set) recipe.getInputs().accumulateInto(counts, -1);
+            if (extra != null) extra.getInputs().accumulateInto(counts, -1);
+            Arrays.fill(presence, 0L);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 为被排除的候选配方提取极小的冲突证据 ({@link ConflictWitness})。
+ * <p>
+ * 对一个安全集合 S 和候选 c，加入 c 不安全只可能是以下三种情况之一 (按此顺序检查)：
+ * <ol>
+ *     <li>c 被 S 的并集覆盖；</li>
+ *     <li>某个成员 s 被 "S - s + c" 的并集覆盖；</li>
+ *     <li>某个外部范围配方 e 被 "S + c" 的并集覆盖。</li>
+ * </ol>
+ * 找到被覆盖的配方后，只有与它共享原料的成员才可能参与覆盖，这些成员通过 {@link UnionState} 的范围倒排表找到。
+ * 随后在一个稠密数量数组上逐个尝试删除成员，删除后仍能覆盖就保留删除，得到删除极小的覆盖。
+ * 每个候选的代价为 O(相关成员数 × 被覆盖配方的原料种类数)，不枚举子集，因此可以对数百个候选逐一解释。
+ */
+public final class ConflictExplainer {
+
+    private final UnionState state;
+    private long[] dense;
+
+    /**
+     * @param state 已压入最终 (安全) 集合的状态。解释过程中不会修改它。
+     */
+    public ConflictExplainer(UnionState state) {
+        this.state = state;
+        this.dense = new long[Math.max(64, IngredientInterner.size())];
+    }
+
+    /**
+     * 解释一个未被选中的候选。
+     *
+     * @return 冲突证据；如果候选其实可以安全加入，返回 {@code null}。
+     */
+    public ConflictWitness explain(IConflictRecipe rejected) {
+        InputMultiset in = rejected.getInputs();
+
+        // 1. 候选被已选配方覆盖
+        if (state.isCoveredByMembers(in)) {
+            return new ConflictWitness(rejected, rejected, minimalCover(in, null, state.membersSharingInputsWith(in), null));
+        }
+
+        // 2. 已选配方被 "其他已选配方 + 候选" 覆盖
+        IConflictRecipe member = state.findMemberCoveredWith(in);
+        if (member != null) {
+            InputMultiset target = member.getInputs();
+            return new ConflictWitness(rejected, member, minimalCover(target, rejected, state.membersSharingInputsWith(target), member));
+        }
+
+        // 3. 外部配方被 "已选配方 + 候选" 覆盖
+        IConflictRecipe external = state.findExternalCoveredWith(rejected);
+        if (external != null) {
+            InputMultiset target = external.getInputs();
+            return new ConflictWitness(rejected, external, minimalCover(target, rejected, state.membersSharingInputsWith(target), null));
+        }
+        return null;
+    }
+
+    /**
+     * 从 {@code candidates} 中删除多余的配方，使剩下的配方 (加上必须保留的 {@code fixed}) 恰好仍能覆盖 {@code target}。
+     *
+     * @param fixed    必须出现在覆盖中的配方 (被解释的候选)，可以为 {@code null}。
+     * @param excluded 不能参与覆盖的配方 (被覆盖的成员自身)，可以为 {@code null}。
+     */
+    private List<IConflictRecipe> minimalCover(InputMultiset target, IConflictRecipe fixed,
+                                               List<IConflictRecipe> candidates, IConflictRecipe excluded) {
+        List<IConflictRecipe> cover = new ArrayList<>(candidates);
+        if (excluded != null) cover.remove(excluded);
+        InputMultiset fixedInputs = fixed == null ? null : fixed.getInputs();
+        int maxId = fixedInputs == null ? -1 : fixedInputs.maxId();
+        for (IConflictRecipe recipe : cover) maxId = Math.max(maxId, recipe.getInputs().maxId());
+        if (maxId >= dense.length) dense = new long[Math.max(maxId + 1, dense.length * 2)];
+
+        for (IConflictRecipe recipe : cover) recipe.getInputs().accumulateInto(dense, 1);
+        // 先尝试删除输入最多的配方，倾向于保留小而具体的覆盖
+        cover.sort(Comparator.comparingLong((IConflictRecipe r) -> r.getInputs().totalCount()).reversed());
+        Iterator<IConflictRecipe> it = cover.iterator();
+        while (it.hasNext()) {
+            InputMultiset candidateInputs = it.next().getInputs();
+            candidateInputs.accumulateInto(dense, -1);
+            if (target.isCoveredBy(dense, 0, fixedInputs)) {
+                it.remove();
+            } else {
+                candidateInputs.accumulateInto(dense, 1);
+            }
+        }
+        for (IConflictRecipe recipe : cover) recipe.getInputs().accumulateInto(dense, -1);
+
+        if (fixed != null) cover.add(0, fixed);
+        return cover;
+    }
+}
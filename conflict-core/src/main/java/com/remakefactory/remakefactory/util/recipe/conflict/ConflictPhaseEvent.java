@@ -0,0 +1,20 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder 事件：冲突分析的一个阶段 (见 {@link SolverStats.Phase})。
+ */
+@Name("remakefactory.ConflictPhase")
+@Label("Conflict Analysis Phase")
+@Category({"RemakeFactory", "Conflict"})
+@Description("One phase of a recipe conflict analysis, such as preparing inputs or searching")
+final class ConflictPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,76 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Set;
+
+/**
+ * 一个可增量修改的无冲突集合，用于交互式地搭建产线 (每个配方类型一个会话)。
+ * <p>
+ * 会话始终保持安全：加入前用 {@link ConflictExplainer} 检查 (安全时的代价与 {@link UnionState#canAdd} 相同，
+ * 即只沿新配方的原料检查)，不安全的配方不会被加入，而是返回冲突证据。因为集合始终安全，
+ * 不需要维护两两关系矩阵：新配方只需与共享原料的成员比较，移除成员也不会产生新的冲突。
+ * 加入、移除和检查的代价都只与被操作配方的输入及其相关成员有关，与会话大小无关，无需从ID列表重建。
+ * <p>
+ * 会话不是线程安全的，调用方需要保证同一时间只有一个线程访问。
+ */
+public final class ConflictSession {
+
+    private final UnionState state;
+    private final ConflictExplainer explainer;
+
+    /**
+     * @param scopeIndex 检查外部冲突的范围 (通常是整个配方类型，见 {@link RecipeTypeIndexCache})。
+     */
+    public ConflictSession(ScopeIndex scopeIndex) {
+        this.state = new UnionState(scopeIndex);
+        this.explainer = new ConflictExplainer(state);
+    }
+
+    public ScopeIndex scopeIndex() {
+        return state.scopeIndex();
+    }
+
+    /** 会话中的配方数量。 */
+    public int size() {
+        return state.size();
+    }
+
+    /** 会话中配方的独立副本。 */
+    public Set<IConflictRecipe> members() {
+        return state.toSet();
+    }
+
+    public boolean contains(IConflictRecipe recipe) {
+        return state.contains(recipe);
+    }
+
+    /**
+     * 在不修改会话的前提下，检查加入一个配方是否安全。
+     *
+     * @return 不安全时返回冲突证据；安全 (或已在会话中) 时返回 {@code null}。
+     */
+    public ConflictWitness check(IConflictRecipe recipe) {
+        if (contains(recipe)) return null;
+        return explainer.explain(recipe);
+    }
+
+    /**
+     * 如果安全则加入一个配方。
+     *
+     * @return 不安全时返回冲突证据 (会话不变)；加入成功或已在会话中时返回 {@code null}。
+     */
+    public ConflictWitness add(IConflictRecipe recipe) {
+        if (contains(recipe)) return null;
+        ConflictWitness witness = explainer.explain(recipe);
+        if (witness == null) state.push(recipe);
+        return witness;
+    }
+
+    /**
+     * 移除一个配方。安全集合的子集仍然安全，因此不需要重新检查其余成员。
+     *
+     * @return 配方原本是否在会话中。
+     */
+    public boolean remove(IConflictRecipe recipe) {
+        return state.remove(recipe);
+    }
+}
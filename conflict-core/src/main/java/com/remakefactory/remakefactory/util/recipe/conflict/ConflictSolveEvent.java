@@ -0,0 +1,56 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder 事件：一次完整的冲突分析及其计数器 (见 {@link SolverStats#commitEvent})。
+ */
+@Name("remakefactory.ConflictSolve")
+@Label("Conflict Analysis")
+@Category({"RemakeFactory", "Conflict"})
+@Description("A complete recipe conflict analysis with its solver counters")
+final class ConflictSolveEvent extends Event {
+
+    @Label("Analysis")
+    String analysis;
+
+    @Label("Recipes")
+    int recipes;
+
+    @Label("Result Size")
+    int result;
+
+    @Label("Nodes Expanded")
+    long nodes;
+
+    @Label("Scope Checks")
+    long scopeChecks;
+
+    @Label("Subset Checks")
+    long subsetChecks;
+
+    @Label("Internal Checks")
+    long internalChecks;
+
+    @Label("Internal Conflicts")
+    long internalConflicts;
+
+    @Label("External Scans")
+    long externalScans;
+
+    @Label("External Conflicts")
+    long externalConflicts;
+
+    @Label("Bound Prunes")
+    long boundPrunes;
+
+    @Label("Child Prunes")
+    long childPrunes;
+
+    @Label("Budget Cutoffs")
+    long budgetCutoffs;
+}
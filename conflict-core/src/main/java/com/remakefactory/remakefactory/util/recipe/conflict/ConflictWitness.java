@@ -0,0 +1,23 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.List;
+
+/**
+ * 一个候选配方被排除的理由：加入它之后，{@code covered} 的输入会被 {@code cover} 中配方的输入之并完全覆盖。
+ * <ul>
+ *     <li>{@code covered == rejected}：候选自己能由已选配方组合而成，{@code cover} 全部是已选配方；</li>
+ *     <li>否则 {@code covered} 是某个已选配方或外部配方，{@code cover} 包含候选本身以及与它一起构成覆盖的已选配方。</li>
+ * </ul>
+ * {@code cover} 是删除极小的：去掉其中任何一个配方都不再能覆盖 {@code covered}。
+ *
+ * @param rejected 被排除的候选配方。
+ * @param covered  被覆盖的配方。
+ * @param cover    覆盖它的配方。
+ */
+public record ConflictWitness(IConflictRecipe rejected, IConflictRecipe covered, List<IConflictRecipe> cover) {
+
+    /** 候选自己是否被已选配方覆盖 (而不是它参与覆盖了别的配方)。 */
+    public boolean isRejectedCovered() {
+        return covered.equals(rejected);
+    }
+}
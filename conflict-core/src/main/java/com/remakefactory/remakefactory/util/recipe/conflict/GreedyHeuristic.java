@@ -0,0 +1,28 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+/**
+ * 贪心组合 ({@link GreedyPortfolio}) 中使用的候选排序策略。贪心按顺序尝试加入候选，排在前面的优先。
+ */
+public enum GreedyHeuristic {
+    /** 不同原料种类最少的优先 (原有的单一贪心策略)。 */
+    FEWEST_DISTINCT("fewest_distinct"),
+    /** 原料总数量最少的优先。 */
+    FEWEST_TOTAL_ITEMS("fewest_total_items"),
+    /** 在两两冲突图 (互为子集/超集) 中度数最小的优先。 */
+    FEWEST_PAIRWISE_CONFLICTS("fewest_pairwise_conflicts"),
+    /** 所用原料在范围内越罕见越优先，越不容易组合覆盖其他配方。 */
+    RAREST_INGREDIENTS("rarest_ingredients"),
+    /** 在"原料种类最少"的基础上加入随机扰动，每个种子对应一个不同的顺序。 */
+    RANDOMIZED("randomized");
+
+    private final String id;
+
+    GreedyHeuristic(String id) {
+        this.id = id;
+    }
+
+    /** 用于本地化键和日志的短名称。 */
+    public String id() {
+        return id;
+    }
+}
@@ -0,0 +1,160 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 贪心组合：在 {@link SolverPool} 上并发运行多种候选排序的贪心，保留最大的结果。
+ * <p>
+ * 所有排序共享同一个不可变的 {@link ScopeIndex}，每个任务使用自己的 {@link UnionState}。
+ * 固定策略各运行一次，其余空闲线程用于带不同种子的随机化排序；线程足够多时总耗时与单次贪心相当。
+ * 结果大小相同时，优先选择 {@link GreedyHeuristic} 中靠前的策略，保证结果可复现。
+ * <p>
+ * 每次贪心在加入候选的循环中检查预算：超时或被取消时立即停止，返回目前已经加入的配方 (仍然是安全的)，
+ * 使取消的任务尽快让出求解线程池。
+ */
+final class GreedyPortfolio {
+
+    // 为其他并发任务 (例如另一位玩家的求解) 保留的线程数，剩余线程全部用于随机化排序
+    private static final int RESERVED_THREADS = 4;
+    // 每加入这么多 (减一) 个候选检查一次预算
+    private static final int BUDGET_CHECK_MASK = 63;
+
+    private final IConflictRecipe mandatoryRecipe;
+    private final List<IConflictRecipe> candidates;
+    private final ScopeIndex scopeIndex;
+    // 为 null 时不计数
+    private final SolverStats stats;
+    private final SolveBudget budget;
+
+    private GreedyPortfolio(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> searchSpace, ScopeIndex scopeIndex, SolverStats stats, SolveBudget budget) {
+        this.mandatoryRecipe = mandatoryRecipe;
+        this.candidates = new ArrayList<>(new LinkedHashSet<>(searchSpace));
+        this.candidates.remove(mandatoryRecipe);
+        this.scopeIndex = scopeIndex;
+        this.stats = stats;
+        this.budget = budget;
+    }
+
+    /**
+     * @param stats  记录各次贪心的检查次数，可以为 null。
+     * @param budget 超时或取消时提前结束。
+     */
+    static PortfolioResult run(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> searchSpace, ScopeIndex scopeIndex, SolverStats stats, SolveBudget budget) {
+        return new GreedyPortfolio(mandatoryRecipe, searchSpace, scopeIndex, stats, budget).run();
+    }
+
+    private PortfolioResult run() {
+        UnionState base = new UnionState(scopeIndex);
+        base.push(mandatoryRecipe);
+        if (base.hasExternalCover()) {
+            return new PortfolioResult(Set.of(mandatoryRecipe), GreedyHeuristic.FEWEST_DISTINCT, 0);
+        }
+
+        List<GreedyHeuristic> heuristics = new ArrayList<>();
+        List<Long> seeds = new ArrayList<>();
+        for (GreedyHeuristic heuristic : GreedyHeuristic.values()) {
+            if (heuristic == GreedyHeuristic.RANDOMIZED) continue;
+            heuristics.add(heuristic);
+            seeds.add(0L);
+        }
+        int randomRuns = Math.max(1, SolverPool.get().getParallelism() - RESERVED_THREADS);
+        for (int i = 1; i <= randomRuns; i++) {
+            heuristics.add(GreedyHeuristic.RANDOMIZED);
+            seeds.add((long) i);
+        }
+
+        List<ForkJoinTask<Set<IConflictRecipe>>> tasks = new ArrayList<>(heuristics.size());
+        for (int i = 0; i < heuristics.size(); i++) {
+            GreedyHeuristic heuristic = heuristics.get(i);
+            long seed = seeds.get(i);
+            tasks.add(SolverPool.get().submit(() -> runGreedy(order(heuristic, seed))));
+        }
+
+        PortfolioResult best = null;
+        for (int i = 0; i < tasks.size(); i++) {
+            Set<IConflictRecipe> result = tasks.get(i).join();
+            if (best == null || result.size() > best.recipes().size()) {
+                best = new PortfolioResult(result, heuristics.get(i), seeds.get(i));
+            }
+        }
+        return best;
+    }
+
+    private Set<IConflictRecipe> runGreedy(List<IConflictRecipe> ordered) {
+        UnionState state = new UnionState(scopeIndex);
+        SolverStats.Tally tally = stats == null ? null : new SolverStats.Tally();
+        state.countInto(tally);
+        state.push(mandatoryRecipe);
+        for (int i = 0; i < ordered.size(); i++) {
+            if ((i & BUDGET_CHECK_MASK) == 0 && budget.checkDeadline()) break;
+            state.tryPush(ordered.get(i));
+        }
+        if (tally != null) tally.flushTo(stats);
+        return state.toSet();
+    }
+
+    private List<IConflictRecipe> order(GreedyHeuristic heuristic, long seed) {
+        List<IConflictRecipe> ordered = new ArrayList<>(candidates);
+        switch (heuristic) {
+            case FEWEST_DISTINCT -> ordered.sort(Comparator.comparingInt(r -> r.getInputs().size()));
+            case FEWEST_TOTAL_ITEMS -> ordered.sort(Comparator.comparingLong((IConflictRecipe r) -> r.getInputs().totalCount())
+                    .thenComparingInt(r -> r.getInputs().size()));
+            case FEWEST_PAIRWISE_CONFLICTS -> {
+                Map<IConflictRecipe, Integer> degrees = pairwiseConflictDegrees();
+                ordered.sort(Comparator.comparingInt((IConflictRecipe r) -> degrees.get(r))
+                        .thenComparingInt(r -> r.getInputs().size()));
+            }
+            case RAREST_INGREDIENTS -> {
+                Map<IConflictRecipe, Long> rarity = new HashMap<>(ordered.size() * 2);
+                for (IConflictRecipe r : ordered) {
+                    InputMultiset in = r.getInputs();
+                    long frequency = 0;
+                    for (int j = 0; j < in.size(); j++) frequency += scopeIndex.frequencyOf(in.id(j));
+                    rarity.put(r, frequency);
+                }
+                ordered.sort(Comparator.comparingLong((IConflictRecipe r) -> rarity.get(r))
+                        .thenComparingInt(r -> r.getInputs().size()));
+            }
+            case RANDOMIZED -> {
+                Random random = new Random(seed);
+                Map<IConflictRecipe, Double> keys = new HashMap<>(ordered.size() * 2);
+                for (IConflictRecipe r : ordered) keys.put(r, r.getInputs().size() + random.nextDouble() * 2.0);
+                ordered.sort(Comparator.comparingDouble(keys::get));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 两两冲突图中每个候选的度数：与它互为子集/超集的其他候选数量。
+     * 子集关系要求共享全部原料，因此只需在较小一方最罕见原料的候选列表中查找超集。
+     */
+    private Map<IConflictRecipe, Integer> pairwiseConflictDegrees() {
+        Map<Integer, List<IConflictRecipe>> byIngredient = new HashMap<>();
+        for (IConflictRecipe r : candidates) {
+            InputMultiset in = r.getInputs();
+            for (int j = 0; j < in.size(); j++) byIngredient.computeIfAbsent(in.id(j), k -> new ArrayList<>()).add(r);
+        }
+
+        Map<IConflictRecipe, Integer> degrees = new HashMap<>(candidates.size() * 2);
+        for (IConflictRecipe r : candidates) degrees.put(r, 0);
+        for (IConflictRecipe sub : candidates) {
+            if (budget.isExhausted()) break; // 排序结果不完整也无妨，贪心本身也会立即停止
+            InputMultiset in = sub.getInputs();
+            if (in.isEmpty()) continue; // 空输入与所有配方都冲突，对排序没有区分度
+            List<IConflictRecipe> rarest = null;
+            for (int j = 0; j < in.size(); j++) {
+                List<IConflictRecipe> list = byIngredient.get(in.id(j));
+                if (rarest == null || list.size() < rarest.size()) rarest = list;
+            }
+            for (IConflictRecipe sup : rarest) {
+                if (sup != sub && in.isSubsetOf(sup.getInputs())) {
+                    degrees.merge(sub, 1, Integer::sum);
+                    degrees.merge(sup, 1, Integer::sum);
+                }
+            }
+        }
+        return degrees;
+    }
+}
@@ -15,18 +15,27 @@ public interface IConflictRecipe {
     Object getUnderlyingRecipe();
 
     /**
-     * 核心方法。将配方的输入解析为一个规范的、可比较的格式。
-     * 这个Map代表一个多重集(multiset)，其中键是原料的规范化字符串表示
-     * (例如 "item:minecraft:iron_ingot", "fluid:minecraft:water", "tag:forge:ingots/iron")，
-     * 值是所需的数量。
+     * 核心方法。将配方的输入解析为以驻留ID表示的多重集。
+     * 原料键 (例如 "item:minecraft:iron_ingot", "fluid:minecraft:water", "tag:forge:ingots/iron")
+     * 通过 {@link IngredientInterner} 映射为稠密整数，数量使用 long 以容纳大额流体。
+     * 求解器只使用此表示，实现类应当缓存其结果。
+     *
+     * @return 一个代表输入多重集的 {@link InputMultiset}。
+     */
+    InputMultiset getInputs();
+
+    /**
+     * 以字符串键的形式返回输入多重集，便于阅读和调试。
      *
      * @return 一个代表输入多重集的Map。
      */
-    Map<String, Integer> getInputsAsMultiset();
+    default Map<String, Long> getInputsAsMultiset() {
+        return getInputs().toKeyedMap();
+    }
 
     @Override
     boolean equals(Object obj);
 
     @Override
     int hashCode();
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局原料驻留表。
+ * 将 "item:"/"tag:"/"fluid:"/"circuit:" 形式的原料键映射为从 0 开始的稠密整数ID，
+ * 使求解器可以用基本类型数组代替 {@code Map<String, Integer>} 进行多重集运算。
+ * <p>
+ * ID 一经分配便不会改变，因此可以安全地在多个线程和多次分析之间共享。
+ */
+public final class IngredientInterner {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> KEYS = new ArrayList<>();
+
+    private IngredientInterner() {} // 静态工具类，无需实例化
+
+    /**
+     * 获取一个原料键对应的稠密ID，如果尚未分配则分配一个新的。
+     *
+     * @param key 规范化的原料键 (例如 "item:minecraft:iron_ingot")。
+     * @return 该原料的稠密ID。
+     */
+    public static int intern(String key) {
+        Integer id = IDS.get(key);
+        if (id != null) return id;
+        synchronized (KEYS) {
+            id = IDS.get(key);
+            if (id != null) return id;
+            int newId = KEYS.size();
+            KEYS.add(key);
+            IDS.put(key, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * 根据稠密ID取回原料键。
+     */
+    public static String keyOf(int id) {
+        synchronized (KEYS) {
+            return KEYS.get(id);
+        }
+    }
+
+    /**
+     * 当前已分配的ID数量。所有已分配的ID都严格小于此值。
+     */
+    public static int size() {
+        synchronized (KEYS) {
+            return KEYS.size();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 以驻留ID表示的、不可变的输入多重集。
+ * 内部使用按ID升序排列的 {@code int[] ids} 与对应的 {@code long[] counts}，
+ * 求解器可以在不装箱、不哈希字符串的情况下完成子集判断与并集累加。
+ * <p>
+ * 启用标签匹配时 (见 {@link TagExpansion})，多重集区分两个视角：
+ * <ul>
+ *     <li><b>需求</b>：配方实际要求的原料 ({@link #id}/{@link #count} 等访问的就是需求)；</li>
+ *     <li><b>供给</b>：配方的输入放进机器后能满足的原料，即需求再加上它们所属的标签。</li>
+ * </ul>
+ * 并集总是由供给累加 ({@link #accumulateInto}、{@link #markPresence})，覆盖和子集判断总是用需求去比较供给。
+ * 没有标签展开时供给就是需求本身，所有运算与展开前完全相同。
+ */
+public final class InputMultiset {
+
+    public static final InputMultiset EMPTY = new InputMultiset(new int[0], new long[0]);
+
+    private final int[] ids;
+    private final long[] counts;
+    private final long totalCount;
+    private final int hash;
+    // 原料存在性签名：以驻留ID为位下标的位图，用于在比较数量前快速排除
+    private final long[] presence;
+    // 64位定宽的布隆字 (id mod 64)，用于两个配方之间的廉价预判
+    private final long bloom;
+    // 供给视角 (没有标签展开时为 this)，以及每种需求原料在供给中的数量 (用于从并集中扣除自身)
+    private final InputMultiset supply;
+    private final long[] suppliedCounts;
+
+    private InputMultiset(int[] ids, long[] counts) {
+        this(ids, counts, null);
+    }
+
+    private InputMultiset(int[] ids, long[] counts, InputMultiset supply) {
+        this.ids = ids;
+        this.counts = counts;
+        this.supply = supply == null ? this : supply;
+        if (supply == null) {
+            this.suppliedCounts = counts;
+        } else {
+            this.suppliedCounts = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) suppliedCounts[i] = supply.countOf(ids[i]);
+        }
+        long total = 0;
+        for (long c : counts) total += c;
+        this.totalCount = total;
+        this.presence = new long[ids.length == 0 ? 0 : (ids[ids.length - 1] >>> 6) + 1];
+        long bloomWord = 0;
+        for (int id : ids) {
+            presence[id >>> 6] |= 1L << id;
+            bloomWord |= 1L << id;
+        }
+        this.bloom = bloomWord;
+        this.hash = 31 * Arrays.hashCode(ids) + Arrays.hashCode(counts);
+    }
+
+    /**
+     * 从字符串键的多重集构建。数量小于等于0的条目会被忽略。
+     */
+    public static InputMultiset of(Map<String, ? extends Number> keyedCounts) {
+        Builder builder = new Builder();
+        keyedCounts.forEach((key, count) -> builder.add(key, count.longValue()));
+        return builder.build();
+    }
+
+    /**
+     * 返回需求不变、供给为 {@code supply} 的多重集。供给必须包含全部需求 (数量不少于需求)。
+     */
+    InputMultiset withSupply(InputMultiset supply) {
+        if (supply.equals(this)) return this;
+        return new InputMultiset(ids, counts, supply.supply);
+    }
+
+    /**
+     * 去掉供给、只保留需求的多重集 (例如为另一组配方重新计算标签供给之前)。
+     */
+    InputMultiset demand() {
+        return supply == this ? this : new InputMultiset(ids, counts);
+    }
+
+    /** 供给视角 (没有标签展开时就是本多重集)。 */
+    public InputMultiset supply() {
+        return supply;
+    }
+
+    // --- 只读访问 ---
+
+    /** 不同原料的数量。 */
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    /** 第 i 个原料的驻留ID (按升序)。 */
+    public int id(int i) {
+        return ids[i];
+    }
+
+    /** 第 i 个原料所需的数量。 */
+    public long count(int i) {
+        return counts[i];
+    }
+
+    /** 所有原料数量之和。 */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /** 指定原料ID所需的数量，不存在时返回0。 */
+    public long countOf(int ingredientId) {
+        int idx = Arrays.binarySearch(ids, ingredientId);
+        return idx >= 0 ? counts[idx] : 0;
+    }
+
+    /** 是否包含指定原料 (只看存在性签名，不看数量)。 */
+    public boolean contains(int ingredientId) {
+        int w = ingredientId >>> 6;
+        return w < presence.length && (presence[w] & (1L << ingredientId)) != 0;
+    }
+
+    /** 最大的原料ID (包括供给中的标签)，空集时返回 -1。 */
+    public int maxId() {
+        int[] supplyIds = supply.ids;
+        return supplyIds.length == 0 ? -1 : supplyIds[supplyIds.length - 1];
+    }
+
+    /**
+     * 判断本多重集 (需求) 是否是 {@code sup} (供给) 的子多重集。
+     * 两者都按ID排序，因此只需一次归并扫描。
+     */
+    public boolean isSubsetOf(InputMultiset sup) {
+        sup = sup.supply;
+        int[] supIds = sup.ids;
+        long[] supCounts = sup.counts;
+        if (ids.length > supIds.length) return false;
+        // 绝大多数失败的情况是 sub 含有 sup 完全没有的原料，先用签名排除
+        if ((bloom & ~sup.bloom) != 0) return false;
+        if (!isPresentIn(sup.presence)) return false;
+        int j = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            while (j < supIds.length && supIds[j] < id) j++;
+            if (j == supIds.length || supIds[j] != id || supCounts[j] < counts[i]) return false;
+            j++;
+        }
+        return true;
+    }
+
+    /**
+     * 判断本多重集的每一种原料是否都在给定的存在性位图中出现，即 {@code (sub & ~sup) == 0}。
+     * 这是子集关系的必要条件，失败时无需再比较数量。
+     */
+    public boolean isPresentIn(long[] supPresence) {
+        return isPresentIn(supPresence, null);
+    }
+
+    /**
+     * 同 {@link #isPresentIn(long[])}，但位图额外并上 {@code extra} (供给) 的签名 (不修改位图本身)。
+     */
+    public boolean isPresentIn(long[] supPresence, InputMultiset extra) {
+        if (extra != null) extra = extra.supply;
+        for (int w = 0; w < presence.length; w++) {
+            long word = presence[w];
+            if (word == 0) continue;
+            long sup = w < supPresence.length ? supPresence[w] : 0L;
+            if (extra != null && w < extra.presence.length) sup |= extra.presence[w];
+            if ((word & ~sup) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 两个多重集 (的供给) 是否至少共享一种原料。需求都包含在供给中，因此这是"一个能影响另一个"的必要条件。
+     */
+    public boolean intersects(InputMultiset other) {
+        if (supply != this || other.supply != other) return supply.intersects(other.supply);
+        if ((bloom & other.bloom) == 0) return false;
+        int words = Math.min(presence.length, other.presence.length);
+        for (int w = 0; w < words; w++) {
+            if ((presence[w] & other.presence[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 将本多重集供给的存在性签名并入一个位图 (按位或)。位图长度必须足以容纳 {@link #maxId()}。
+     */
+    public void markPresence(long[] bits) {
+        if (supply != this) {
+            supply.markPresence(bits);
+            return;
+        }
+        for (int w = 0; w < presence.length; w++) {
+            bits[w] |= presence[w];
+        }
+    }
+
+    /**
+     * 将本多重集的供给按 {@code sign} 倍累加到一个以驻留ID为下标的稠密数组中。
+     * sign 为 1 时相当于并入，为 -1 时相当于撤销。
+     */
+    public void accumulateInto(long[] dense, int sign) {
+        if (supply != this) {
+            supply.accumulateInto(dense, sign);
+            return;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            dense[ids[i]] += sign * counts[i];
+        }
+    }
+
+    /**
+     * 判断本多重集 (需求) 是否被一个稠密并集数组覆盖，覆盖时需额外扣除自身供给的 {@code selfMultiplier} 倍。
+     * selfMultiplier 为 0 时即普通的子集判断；为 1 时表示"本配方已计入并集，判断其是否被其它配方的并集覆盖"。
+     */
+    public boolean isCoveredBy(long[] dense, int selfMultiplier) {
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            if (id >= dense.length || dense[id] - selfMultiplier * suppliedCounts[i] < counts[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 同 {@link #isCoveredBy(long[], int)}，但并集额外加上 {@code extra} 的供给 (不修改数组本身)。
+     * 两者都按ID排序，{@code extra} 的数量通过归并扫描取得。
+     */
+    public boolean isCoveredBy(long[] dense, int selfMultiplier, InputMultiset extra) {
+        if (extra == null) return isCoveredBy(dense, selfMultiplier);
+        extra = extra.supply;
+        int[] extraIds = extra.ids;
+        int j = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            long available = id < dense.length ? dense[id] : 0L;
+            while (j < extraIds.length && extraIds[j] < id) j++;
+            if (j < extraIds.length && extraIds[j] == id) available += extra.counts[j];
+            if (available - selfMultiplier * suppliedCounts[i] < counts[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 转换回可读的字符串键形式，主要用于日志和调试。
+     */
+    public Map<String, Long> toKeyedMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            map.put(IngredientInterner.keyOf(ids[i]), counts[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InputMultiset that)) return false;
+        return hash == that.hash && Arrays.equals(ids, that.ids) && Arrays.equals(counts, that.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toKeyedMap().toString();
+    }
+
+    /**
+     * 用于逐条累加原料并最终生成 {@link InputMultiset} 的构建器。
+     * 同一原料多次出现时数量会被合并。
+     */
+    public static final class Builder {
+        private int[] ids = new int[8];
+        private long[] counts = new long[8];
+        private int size;
+
+        public Builder add(String key, long amount) {
+            return add(IngredientInterner.intern(key), amount);
+        }
+
+        public Builder add(int ingredientId, long amount) {
+            if (amount <= 0) return this;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == ingredientId) {
+                    counts[i] += amount;
+                    return this;
+                }
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            ids[size] = ingredientId;
+            counts[size] = amount;
+            size++;
+            return this;
+        }
+
+        public InputMultiset build() {
+            if (size == 0) return EMPTY;
+            // 配方的原料种类很少，插入排序足够
+            int[] sortedIds = Arrays.copyOf(ids, size);
+            long[] sortedCounts = Arrays.copyOf(counts, size);
+            for (int i = 1; i < size; i++) {
+                int id = sortedIds[i];
+                long count = sortedCounts[i];
+                int j = i - 1;
+                while (j >= 0 && sortedIds[j] > id) {
+                    sortedIds[j + 1] = sortedIds[j];
+                    sortedCounts[j + 1] = sortedCounts[j];
+                    j--;
+                }
+                sortedIds[j + 1] = id;
+                sortedCounts[j + 1] = count;
+            }
+            return new InputMultiset(sortedIds, sortedCounts);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 局部搜索改进器：从贪心结果出发，在时间预算内不断改进一个包含必须配方的无冲突集合。
+ * <p>
+ * 每一轮依次尝试：
+ * <ul>
+ *     <li><b>(1,2)-交换</b>：移除一个成员，再加入两个与它共享原料的候选，集合变大一；</li>
+ *     <li><b>禁忌扰动</b>：找不到改进时随机移除一个成员并在若干轮内禁止它回到集合，
+ *     再用它的邻居贪心填充 (可能是等大小的 1-1 交换，也可能暂时变小)，以跳出局部最优；</li>
+ *     <li><b>随机重启</b>：长时间没有改进时，用带噪声的贪心顺序重新构造一个起点。</li>
+ * </ul>
+ * 所有安全检查都通过 {@link UnionState} 增量完成：安全性对子集封闭，移除成员后状态依然满足增量检查的前提。
+ * 邻居只在与被移除成员共享原料的候选中寻找，并且数量有上限，因此每一轮的代价是多项式的。
+ */
+final class LocalSearchOptimizer {
+
+    // 每个被移除成员最多考虑的邻居数量 / 其中最多用于两两组合的可加入邻居数量
+    private static final int MAX_NEIGHBOURS = 128;
+    private static final int MAX_ADDABLE_PAIRS = 24;
+    // 被扰动移除的成员在这么多轮内不能回到集合
+    private static final int TABU_TENURE = 10;
+    // 连续这么多轮没有刷新当前最优时重启；连续这么多次重启都没有刷新全局最优时提前结束
+    private static final int ROUNDS_BEFORE_RESTART = 200;
+    private static final int RESTARTS_BEFORE_STOP = 20;
+
+    private final IConflictRecipe mandatoryRecipe;
+    private final SolveBudget budget;
+    private final Random random;
+    private final SolverStats.Tally tally = new SolverStats.Tally();
+
+    private final IConflictRecipe[] pool;
+    private final Map<IConflictRecipe, Integer> poolIndex;
+    // 原料ID -> 使用该原料的候选下标
+    private final int[][] postings;
+    private final UnionState state;
+    private final boolean[] inSolution;
+    private final int[] tabuUntil;
+    private final int[] seenStamp;
+    private int stamp;
+    private int round;
+
+    private Set<IConflictRecipe> best;
+
+    LocalSearchOptimizer(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> searchSpace,
+                         ScopeIndex scopeIndex, SolveBudget budget, long seed) {
+        this.mandatoryRecipe = mandatoryRecipe;
+        this.budget = budget;
+        this.random = new Random(seed);
+
+        List<IConflictRecipe> candidates = new ArrayList<>(new LinkedHashSet<>(searchSpace));
+        candidates.remove(mandatoryRecipe);
+        this.pool = candidates.toArray(new IConflictRecipe[0]);
+        this.poolIndex = new HashMap<>(pool.length * 2);
+        int maxId = -1;
+        for (int i = 0; i < pool.length; i++) {
+            poolIndex.put(pool[i], i);
+            maxId = Math.max(maxId, pool[i].getInputs().maxId());
+        }
+
+        int[] postingSizes = new int[maxId + 1];
+        for (IConflictRecipe recipe : pool) {
+            InputMultiset in = recipe.getInputs();
+            for (int j = 0; j < in.size(); j++) postingSizes[in.id(j)]++;
+        }
+        this.postings = new int[maxId + 1][];
+        for (int id = 0; id <= maxId; id++) {
+            postings[id] = new int[postingSizes[id]];
+            postingSizes[id] = 0;
+        }
+        for (int i = 0; i < pool.length; i++) {
+            InputMultiset in = pool[i].getInputs();
+            for (int j = 0; j < in.size(); j++) postings[in.id(j)][postingSizes[in.id(j)]++] = i;
+        }
+
+        this.state = new UnionState(scopeIndex);
+        this.state.countInto(tally);
+        this.inSolution = new boolean[pool.length];
+        this.tabuUntil = new int[pool.length];
+        this.seenStamp = new int[pool.length];
+    }
+
+    /**
+     * 从给定的安全集合 (必须包含必须配方) 出发进行改进，直到预算耗尽或长时间没有进展。
+     *
+     * @return 搜索过程中见过的最大无冲突集合。
+     */
+    Set<IConflictRecipe> improve(Set<IConflictRecipe> initial) {
+        state.push(mandatoryRecipe);
+        if (state.hasExternalCover()) return Set.of(mandatoryRecipe);
+        for (IConflictRecipe recipe : initial) {
+            Integer i = poolIndex.get(recipe);
+            if (i != null && state.tryPush(recipe)) inSolution[i] = true;
+        }
+        best = state.toSet();
+        budget.reportImprovement(best.size() - 1);
+
+        int staleRounds = 0;
+        int staleRestarts = 0;
+        while (!budget.consumeNode()) {
+            round++;
+            int before = best.size();
+            if (!tryTwoForOne()) perturb();
+            if (state.size() > best.size()) {
+                budget.reportImprovement(state.size() - best.size());
+                best = state.toSet();
+            }
+
+            if (best.size() > before) {
+                staleRounds = 0;
+                staleRestarts = 0;
+            } else if (++staleRounds >= ROUNDS_BEFORE_RESTART) {
+                if (++staleRestarts >= RESTARTS_BEFORE_STOP) break;
+                restart();
+                staleRounds = 0;
+            }
+        }
+        tally.flushTo(budget.stats());
+        return best;
+    }
+
+    /**
+     * 尝试一次 (1,2)-交换：按随机顺序移除一个成员，在它的邻居中找两个可以同时加入的候选。
+     *
+     * @return 是否找到了改进。
+     */
+    private boolean tryTwoForOne() {
+        int[] members = currentMembers();
+        shuffle(members);
+        for (int x : members) {
+            // 一轮可能很长，每个成员都检查一次截止时间 (不消耗节点)
+            if (budget.checkDeadline()) return false;
+            remove(x);
+            int[] addable = addableNeighbours(x, MAX_ADDABLE_PAIRS);
+            for (int a = 0; a < addable.length; a++) {
+                add(addable[a]);
+                for (int b = a + 1; b < addable.length; b++) {
+                    if (state.canAdd(pool[addable[b]])) {
+                        add(addable[b]);
+                        // 交换成功后再顺便加入仍然可以加入的邻居
+                        fill(addableNeighbours(x, MAX_NEIGHBOURS));
+                        return true;
+                    }
+                }
+                remove(addable[a]);
+            }
+            add(x);
+        }
+        return false;
+    }
+
+    /**
+     * 随机移除一个成员并将其设为禁忌，然后用它的邻居贪心填充。
+     */
+    private void perturb() {
+        int[] members = currentMembers();
+        if (members.length == 0) {
+            restart();
+            return;
+        }
+        int x = members[random.nextInt(members.length)];
+        remove(x);
+        tabuUntil[x] = round + TABU_TENURE;
+        int[] addable = addableNeighbours(x, MAX_NEIGHBOURS);
+        shuffle(addable);
+        fill(addable);
+    }
+
+    /**
+     * 回到只有必须配方的状态，用带噪声的"输入越简单越优先"顺序贪心地重新构造。
+     */
+    private void restart() {
+        while (state.size() > 1) state.pop();
+        Arrays.fill(inSolution, false);
+        Arrays.fill(tabuUntil, 0);
+        double[] keys = new double[pool.length];
+        Integer[] order = new Integer[pool.length];
+        for (int i = 0; i < pool.length; i++) {
+            keys[i] = pool[i].getInputs().size() + random.nextDouble() * 2.0;
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> keys[i]));
+        for (int i : order) {
+            if (state.tryPush(pool[i])) inSolution[i] = true;
+        }
+    }
+
+    /** 依次尝试加入给定候选中仍然可以加入的那些。 */
+    private void fill(int[] candidates) {
+        for (int c : candidates) {
+            if (!inSolution[c] && state.canAdd(pool[c])) add(c);
+        }
+    }
+
+    /**
+     * 与成员 x 共享原料、不在集合中、不在禁忌期且当前可以加入的候选，最多 {@code limit} 个。
+     */
+    private int[] addableNeighbours(int x, int limit) {
+        if (++stamp == 0) {
+            Arrays.fill(seenStamp, 0);
+            stamp = 1;
+        }
+        seenStamp[x] = stamp;
+        int[] neighbours = new int[MAX_NEIGHBOURS];
+        int count = 0;
+        InputMultiset in = pool[x].getInputs();
+        // 从随机的原料开始，避免总是偏向低ID原料的倒排表
+        int offset = in.isEmpty() ? 0 : random.nextInt(in.size());
+        outer:
+        for (int k = 0; k < in.size(); k++) {
+            int[] list = postings[in.id((k + offset) % in.size())];
+            int start = list.length == 0 ? 0 : random.nextInt(list.length);
+            for (int p = 0; p < list.length; p++) {
+                int c = list[(p + start) % list.length];
+                if (seenStamp[c] == stamp) continue;
+                seenStamp[c] = stamp;
+                if (inSolution[c] || tabuUntil[c] > round) continue;
+                neighbours[count++] = c;
+                if (count == MAX_NEIGHBOURS) break outer;
+            }
+        }
+
+        int[] addable = new int[Math.min(count, limit)];
+        int found = 0;
+        for (int i = 0; i < count && found < addable.length; i++) {
+            if (state.canAdd(pool[neighbours[i]])) addable[found++] = neighbours[i];
+        }
+        return found == addable.length ? addable : Arrays.copyOf(addable, found);
+    }
+
+    private int[] currentMembers() {
+        int[] members = new int[state.size() - 1];
+        for (int i = 1; i < state.size(); i++) members[i - 1] = poolIndex.get(state.get(i));
+        return members;
+    }
+
+    private void add(int c) {
+        state.push(pool[c]);
+        inSolution[c] = true;
+    }
+
+    private void remove(int c) {
+        state.remove(pool[c]);
+        inSolution[c] = false;
+    }
+
+    private void shuffle(int[] array) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
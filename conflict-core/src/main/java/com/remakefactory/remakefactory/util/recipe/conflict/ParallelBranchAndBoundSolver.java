@@ -0,0 +1,221 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多线程分支定界求解器 (Fork/Join，工作窃取)。
+ * <p>
+ * 与 {@link BranchAndBoundSolver} 使用相同的节点过滤和上界剪枝，另外：
+ * <ul>
+ *     <li>所有工作线程通过一个原子变量共享当前最优解的大小，彼此的子树都能被及时剪掉；</li>
+ *     <li>只有当子树的剩余候选足够多、且线程池里待领取的任务不多时才拆分出新任务，否则就地递归；</li>
+ *     <li>取消是协作式的：每个节点都会检查 {@link SolveBudget}，耗尽或取消后返回目前的最优解和可证明的上界；</li>
+ *     <li>任务运行在专用的 {@link SolverPool} 上，两两子集关系的 {@link SubsetMatrix} 也在其上并行计算；</li>
+ *     <li>检查和剪枝的次数由每个任务单独累加，任务结束时合并进预算的 {@link SolverStats}。</li>
+ * </ul>
+ * 必须配方可以为 {@code null} (用于不含必须配方的连通分量)，此时从空集合开始搜索。
+ */
+final class ParallelBranchAndBoundSolver {
+
+    // 子树剩余候选少于此值时，拆分的开销大于收益
+    private static final int MIN_SPLIT_CANDIDATES = 6;
+    // 当前线程队列中还有这么多未被领取的任务时，不再继续拆分
+    private static final int MAX_SURPLUS_TASKS = 2;
+
+    private final IConflictRecipe mandatoryRecipe;
+    private final List<IConflictRecipe> candidates;
+    private final ScopeIndex scopeIndex;
+    private final SolveBudget budget;
+
+    private IConflictRecipe[] pool;
+    private SubsetMatrix subsetMatrix;
+    // 每个工作线程复用一个并集状态，底部固定压着必须配方 (如果有)
+    private final ThreadLocal<UnionState> states;
+    private final int baseSize;
+    private final AtomicInteger bestSize = new AtomicInteger();
+    // 因预算耗尽而未探索的子树可能达到的最大大小
+    private final AtomicInteger unresolvedBound = new AtomicInteger();
+    private int[] bestSelection = new int[0];
+
+    ParallelBranchAndBoundSolver(IConflictRecipe mandatoryRecipe, Collection<IConflictRecipe> candidates,
+                                 Collection<IConflictRecipe> globalScope, SolveBudget budget) {
+        this.mandatoryRecipe = mandatoryRecipe;
+        this.budget = budget;
+        this.candidates = new ArrayList<>(candidates);
+        this.candidates.remove(mandatoryRecipe);
+        this.scopeIndex = ScopeIndex.of(globalScope);
+        this.baseSize = mandatoryRecipe == null ? 0 : 1;
+        this.states = ThreadLocal.withInitial(() -> {
+            UnionState state = new UnionState(scopeIndex);
+            if (mandatoryRecipe != null) state.push(mandatoryRecipe);
+            return state;
+        });
+    }
+
+    SolveResult solve() {
+        UnionState state = states.get();
+        // 必须配方自己必须是安全的
+        if (mandatoryRecipe != null && state.hasExternalCover()) {
+            return new SolveResult(Set.of(mandatoryRecipe), 1, budget.nodesExplored());
+        }
+
+        SolverStats.Tally rootTally = new SolverStats.Tally();
+        state.countInto(rootTally);
+        List<IConflictRecipe> rootCandidates = new ArrayList<>();
+        for (IConflictRecipe candidate : candidates) {
+            if (state.canAdd(candidate)) rootCandidates.add(candidate);
+        }
+        rootCandidates.sort(Comparator.comparingInt((IConflictRecipe r) -> r.getInputs().size())
+                .thenComparingLong(r -> r.getInputs().totalCount()));
+        pool = rootCandidates.toArray(new IConflictRecipe[0]);
+        SolverStats stats = budget.stats();
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.SUBSET_MATRIX)) {
+            subsetMatrix = SubsetMatrix.compute(pool);
+        }
+        stats.add(SolverStats.Counter.SUBSET_CHECKS, (long) pool.length * Math.max(0, pool.length - 1));
+
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.SEARCH)) {
+            // 贪心结果作为初始最优解
+            long[] selected = new long[subsetMatrix.words()];
+            int[] greedy = new int[pool.length];
+            int greedySize = 0;
+            for (int i = 0; i < pool.length; i++) {
+                if (subsetMatrix.conflictsWithAny(i, selected) || !state.canAddPairwiseCompatible(pool[i])) continue;
+                state.push(pool[i]);
+                selected[i >>> 6] |= 1L << i;
+                greedy[greedySize++] = i;
+            }
+            while (state.size() > baseSize) state.pop();
+            state.countInto(null);
+            rootTally.flushTo(stats);
+            offer(greedy, greedySize);
+
+            int[] root = new int[pool.length];
+            for (int i = 0; i < root.length; i++) root[i] = i;
+            SolverPool.get().invoke(new SubtreeTask(new int[0], root));
+        }
+
+        Set<IConflictRecipe> result = new LinkedHashSet<>();
+        if (mandatoryRecipe != null) result.add(mandatoryRecipe);
+        synchronized (this) {
+            for (int idx : bestSelection) result.add(pool[idx]);
+        }
+        int upperBound = Math.max(bestSize.get(), unresolvedBound.get());
+        return new SolveResult(result, upperBound + baseSize, budget.nodesExplored());
+    }
+
+    /**
+     * 提交一个候选解，只有严格更大时才会替换当前最优解。
+     */
+    private void offer(int[] selection, int size) {
+        if (size <= bestSize.get()) return;
+        synchronized (this) {
+            if (size > bestSize.get()) {
+                bestSelection = Arrays.copyOf(selection, size);
+                budget.reportImprovement(size - bestSize.get());
+                bestSize.set(size);
+            }
+        }
+    }
+
+    /**
+     * 一棵子树：从 {@code path} 对应的已选集合出发，在 {@code cand} 中继续搜索。
+     */
+    private final class SubtreeTask extends RecursiveAction {
+        private final int[] path;
+        private final int[] cand;
+        private int[] selection;
+        private int[][] levelBuffers;
+        private List<SubtreeTask> forked;
+        private final SolverStats.Tally tally = new SolverStats.Tally();
+
+        SubtreeTask(int[] path, int[] cand) {
+            this.path = path;
+            this.cand = cand;
+        }
+
+        @Override
+        protected void compute() {
+            if (budget.isExhausted()) {
+                // 整棵子树都未探索
+                unresolvedBound.accumulateAndGet(path.length + cand.length, Math::max);
+                budget.stats().add(SolverStats.Counter.BUDGET_CUTOFFS, 1);
+                return;
+            }
+            // 把线程复用的状态重置为本子树的起点
+            UnionState state = states.get();
+            while (state.size() > baseSize) state.pop();
+            for (int idx : path) state.push(pool[idx]);
+            state.countInto(tally);
+
+            selection = Arrays.copyOf(path, path.length + cand.length);
+            levelBuffers = new int[cand.length + 1][];
+            levelBuffers[0] = cand;
+            int unresolved = expand(state, path.length, 0, cand.length);
+            if (unresolved > 0) unresolvedBound.accumulateAndGet(unresolved, Math::max);
+            // join 期间本线程执行的其他任务会改用它们自己的计数器
+            state.countInto(null);
+            tally.flushTo(budget.stats());
+
+            // 此时本任务已不再使用状态，join 期间本线程可以安全地执行其他任务
+            if (forked != null) {
+                for (SubtreeTask task : forked) task.join();
+            }
+        }
+
+        /**
+         * @return 因预算耗尽而未能探索的部分可能达到的最大大小；子树被完整搜索 (或剪枝) 时返回 0。
+         */
+        private int expand(UnionState state, int depth, int level, int length) {
+            if (budget.consumeNode()) {
+                tally.increment(SolverStats.Counter.BUDGET_CUTOFFS);
+                return depth + length;
+            }
+            offer(selection, depth);
+
+            int[] levelCand = levelBuffers[level];
+            int unresolved = 0;
+            for (int i = 0; i < length; i++) {
+                // 上界：当前大小 + 剩余候选数。其他线程找到的更优解同样会剪掉这里
+                if (depth + (length - i) <= bestSize.get()) {
+                    tally.increment(SolverStats.Counter.BOUND_PRUNES);
+                    return unresolved;
+                }
+                if (budget.isExhausted()) {
+                    tally.increment(SolverStats.Counter.BUDGET_CUTOFFS);
+                    return Math.max(unresolved, depth + (length - i));
+                }
+
+                int chosen = levelCand[i];
+                state.push(pool[chosen]);
+                selection[depth] = chosen;
+
+                int[] next = levelBuffers[level + 1];
+                if (next == null || next.length < length) next = levelBuffers[level + 1] = new int[length];
+                int nextLength = 0;
+                for (int j = i + 1; j < length; j++) {
+                    int c = levelCand[j];
+                    if (!subsetMatrix.conflicts(chosen, c) && state.canAddPairwiseCompatible(pool[c])) next[nextLength++] = c;
+                }
+
+                if (depth + 1 + nextLength > bestSize.get()) {
+                    if (nextLength >= MIN_SPLIT_CANDIDATES && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+                        // 子树足够大且线程池有空闲：拆分为独立任务供其他线程窃取
+                        SubtreeTask task = new SubtreeTask(Arrays.copyOf(selection, depth + 1), Arrays.copyOf(next, nextLength));
+                        if (forked == null) forked = new ArrayList<>();
+                        forked.add(task);
+                        task.fork();
+                    } else {
+                        unresolved = Math.max(unresolved, expand(state, depth + 1, level + 1, nextLength));
+                    }
+                } else {
+                    tally.increment(SolverStats.Counter.CHILD_PRUNES);
+                }
+                state.pop();
+            }
+            return unresolved;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 不依赖任何游戏对象的 IConflictRecipe 实现：一个配方ID加上已经解析好的输入。
+ * 用于配方转储 (见 {@link RecipeDump})、合成的基准测试数据以及游戏之外的离线分析。
+ */
+public final class PlainConflictRecipe implements IConflictRecipe {
+
+    private final String id;
+    private final InputMultiset inputs;
+    private final String output;
+
+    public PlainConflictRecipe(String id, InputMultiset inputs) {
+        this(id, inputs, null);
+    }
+
+    /**
+     * @param output 书签中的输出部分 (例如 {@code item_stack&minecraft:iron_ingot})，未知时为 null。
+     */
+    public PlainConflictRecipe(String id, InputMultiset inputs, String output) {
+        this.id = Objects.requireNonNull(id);
+        this.inputs = Objects.requireNonNull(inputs);
+        this.output = output;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * 书签中的输出部分，没有记录时为空。
+     */
+    public Optional<String> output() {
+        return Optional.ofNullable(output);
+    }
+
+    /**
+     * @return 配方ID。
+     */
+    @Override
+    public Object getUnderlyingRecipe() {
+        return id;
+    }
+
+    @Override
+    public InputMultiset getInputs() {
+        return inputs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlainConflictRecipe that)) return false;
+        return id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -0,0 +1,13 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Set;
+
+/**
+ * 贪心组合的结果。
+ *
+ * @param recipes   所有排序中得到的最大无冲突集合 (包含必须配方)。
+ * @param heuristic 得到该集合的排序策略。
+ * @param seed      {@link GreedyHeuristic#RANDOMIZED} 使用的随机种子，其他策略为 0。
+ */
+public record PortfolioResult(Set<IConflictRecipe> recipes, GreedyHeuristic heuristic, long seed) {
+}
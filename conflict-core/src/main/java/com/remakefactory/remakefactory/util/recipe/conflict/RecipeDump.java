@@ -0,0 +1,149 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 配方转储：把若干配方类型的已准备配方 (需求、供给和书签用的输出) 保存为与游戏无关的文本文件，
+ * 供基准测试和游戏之外的离线分析读取，读取结果是 {@link PlainConflictRecipe}。
+ * <p>
+ * 文件为 UTF-8 文本，逐行：
+ * <pre>
+ * # 以 # 开头的行是注释
+ * type gtceu:assembler
+ * gtceu:assembler/foo&lt;TAB&gt;item:minecraft:iron_ingot*2 fluid:minecraft:water*1000
+ * gtceu:assembler/bar&lt;TAB&gt;tag:forge:plates/iron*1&lt;TAB&gt;tag:forge:plates/iron*1 tag:forge:plates*1
+ * gtceu:assembler/baz&lt;TAB&gt;item:minecraft:iron_ingot*1&lt;TAB&gt;&lt;TAB&gt;item_stack&amp;minecraft:iron_plate
+ * </pre>
+ * {@code type} 行开始一个配方类型 (一个分析范围)，其后每行一个配方：配方ID、需求、可选的供给
+ * (与需求不同时才写出，见 {@link InputMultiset#supply()}；为空表示与需求相同)，以及可选的输出
+ * (JEI 书签中配方ID之后的部分，用于在游戏之外写出书签)。原料写作 {@code 原料键*数量}，以空格分隔；没有输入时该列为空。
+ * 原料键不含空白字符和 {@code *}。
+ */
+public final class RecipeDump {
+
+    /** 文件的第一行。 */
+    public static final String HEADER = "# RemakeFactory recipe dump v1";
+
+    private static final String TYPE_PREFIX = "type ";
+    private static final char COUNT_SEPARATOR = '*';
+
+    private RecipeDump() {} // 静态工具类，无需实例化
+
+    /**
+     * 读取一个转储文件。
+     *
+     * @return 配方类型ID -> 该类型的配方，保持文件中的顺序。
+     * @throws IOException 读取失败或格式错误 (消息中包含行号)。
+     */
+    public static Map<String, List<PlainConflictRecipe>> read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * 同 {@link #read(Path)}，从已打开的读取器读取。
+     */
+    public static Map<String, List<PlainConflictRecipe>> read(BufferedReader reader) throws IOException {
+        Map<String, List<PlainConflictRecipe>> types = new LinkedHashMap<>();
+        List<PlainConflictRecipe> current = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) continue;
+            if (line.startsWith(TYPE_PREFIX)) {
+                current = types.computeIfAbsent(line.substring(TYPE_PREFIX.length()).trim(), k -> new ArrayList<>());
+                continue;
+            }
+            if (current == null) throw new IOException("Line " + lineNumber + ": recipe before the first 'type' line");
+            String[] columns = line.split("\t", -1);
+            if (columns.length < 2 || columns.length > 4 || columns[0].isEmpty()) {
+                throw new IOException("Line " + lineNumber + ": expected <recipe id> TAB <inputs> [TAB <supply> [TAB <output>]]");
+            }
+            InputMultiset inputs = parseMultiset(columns[1], lineNumber);
+            if (columns.length >= 3 && !columns[2].isEmpty()) inputs = inputs.withSupply(parseMultiset(columns[2], lineNumber));
+            String output = columns.length == 4 && !columns[3].isEmpty() ? columns[3] : null;
+            current.add(new PlainConflictRecipe(columns[0], inputs, output));
+        }
+        return types;
+    }
+
+    /**
+     * 写入文件头，每个文件只写一次。
+     */
+    public static void writeHeader(Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    /**
+     * 写入一个配方类型的全部配方，不记录输出。
+     *
+     * @param recipeType 配方类型ID。
+     * @param recipes    该类型的配方 (通常是以整个类型为范围准备的，供给中已包含标签展开)。
+     * @param idOf       配方 -> 配方ID。
+     */
+    public static void writeType(Writer writer, String recipeType, Collection<? extends IConflictRecipe> recipes,
+                                 Function<? super IConflictRecipe, String> idOf) throws IOException {
+        writeType(writer, recipeType, recipes, idOf, recipe -> null);
+    }
+
+    /**
+     * 同 {@link #writeType(Writer, String, Collection, Function)}，并记录每个配方在书签中的输出。
+     *
+     * @param outputOf 配方 -> 书签中的输出部分，没有时返回 null。
+     */
+    public static void writeType(Writer writer, String recipeType, Collection<? extends IConflictRecipe> recipes,
+                                 Function<? super IConflictRecipe, String> idOf,
+                                 Function<? super IConflictRecipe, String> outputOf) throws IOException {
+        writer.write(TYPE_PREFIX);
+        writer.write(recipeType);
+        writer.write('\n');
+        StringBuilder line = new StringBuilder();
+        for (IConflictRecipe recipe : recipes) {
+            InputMultiset demand = recipe.getInputs();
+            InputMultiset supply = demand.supply();
+            String output = outputOf.apply(recipe);
+            line.setLength(0);
+            line.append(idOf.apply(recipe)).append('\t');
+            appendMultiset(line, demand);
+            if (supply != demand || output != null) {
+                line.append('\t');
+                if (supply != demand) appendMultiset(line, supply);
+            }
+            if (output != null) line.append('\t').append(output);
+            line.append('\n');
+            writer.append(line);
+        }
+    }
+
+    private static void appendMultiset(StringBuilder line, InputMultiset multiset) {
+        for (int j = 0; j < multiset.size(); j++) {
+            if (j > 0) line.append(' ');
+            line.append(IngredientInterner.keyOf(multiset.id(j))).append(COUNT_SEPARATOR).append(multiset.count(j));
+        }
+    }
+
+    private static InputMultiset parseMultiset(String column, int lineNumber) throws IOException {
+        InputMultiset.Builder builder = new InputMultiset.Builder();
+        for (String entry : column.trim().split(" +")) {
+            if (entry.isEmpty()) continue;
+            int separator = entry.lastIndexOf(COUNT_SEPARATOR);
+            try {
+                if (separator <= 0) throw new NumberFormatException();
+                builder.add(entry.substring(0, separator), Long.parseLong(entry.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": malformed ingredient '" + entry + "', expected <key>*<count>");
+            }
+        }
+        return builder.build();
+    }
+}
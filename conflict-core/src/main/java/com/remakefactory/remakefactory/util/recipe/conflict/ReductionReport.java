@@ -0,0 +1,25 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+/**
+ * 搜索前预处理 (归约) 的统计结果。
+ *
+ * @param candidates         归约前的候选数量 (不含必须配方)。
+ * @param subsetOfMandatory  输入是必须配方输入的子集或超集、因而永远无法加入的候选数量。
+ * @param unsafeAlongside    与必须配方单独组成的集合就已经不安全的候选数量。
+ * @param duplicates         输入多重集与另一候选完全相同、被合并到同一等价类代表的候选数量。
+ */
+public record ReductionReport(int candidates, int subsetOfMandatory, int unsafeAlongside, int duplicates) {
+
+    /** 没有进行任何归约。 */
+    public static final ReductionReport NONE = new ReductionReport(0, 0, 0, 0);
+
+    /** 被归约掉的候选总数。 */
+    public int removed() {
+        return subsetOfMandatory + unsafeAlongside + duplicates;
+    }
+
+    /** 归约后实际参与搜索的候选数量。 */
+    public int remaining() {
+        return candidates - removed();
+    }
+}
@@ -0,0 +1,214 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 针对一个全局配方范围 (globalScope) 预先构建的倒排索引，用于加速外部冲突检查。
+ * <p>
+ * 配方按"不同原料的数量"升序排列 (即按原料数分桶)，并为每种原料记录使用它的配方下标。
+ * 外部检查只需考虑那些所有原料都出现在当前并集中的配方：
+ * <ul>
+ *     <li>原料种类多于并集的配方不可能被覆盖，按桶直接跳过；</li>
+ *     <li>增量检查时，只有含有新加入配方某种原料的外部配方才可能"新近"被覆盖。</li>
+ * </ul>
+ * 索引创建后不可变，可在多个线程之间共享。
+ */
+public final class ScopeIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final IConflictRecipe[] recipes;
+    private final InputMultiset[] inputs;
+    private final Map<IConflictRecipe, Integer> positions;
+    // bucketEnd[k] = 原料种类数 <= k 的配方在 recipes 中的结束下标 (不含)
+    private final int[] bucketEnd;
+    // postings[原料ID] = 需求该原料的配方下标 (升序，因此也按原料种类数升序)
+    private final int[][] postings;
+    // supplyPostings[原料ID] = 供给该原料的配方下标；没有标签展开时与 postings 是同一个数组
+    private final int[][] supplyPostings;
+    // 没有任何输入的配方是任意集合的子集，需要单独处理。它们排在 recipes 的最前面
+    private final int emptyCount;
+
+    private ScopeIndex(IConflictRecipe[] recipes) {
+        Arrays.sort(recipes, Comparator.comparingInt(r -> r.getInputs().size()));
+        this.recipes = recipes;
+        this.inputs = new InputMultiset[recipes.length];
+        this.positions = new HashMap<>(recipes.length * 2);
+        int maxSize = 0;
+        int maxId = -1;
+        int empty = 0;
+        boolean expanded = false;
+        for (int i = 0; i < recipes.length; i++) {
+            InputMultiset in = recipes[i].getInputs();
+            inputs[i] = in;
+            positions.put(recipes[i], i);
+            maxSize = Math.max(maxSize, in.size());
+            maxId = Math.max(maxId, in.maxId());
+            if (in.isEmpty()) empty++;
+            if (in.supply() != in) expanded = true;
+        }
+        this.emptyCount = empty;
+
+        this.bucketEnd = new int[maxSize + 1];
+        int cursor = 0;
+        for (int k = 0; k <= maxSize; k++) {
+            while (cursor < inputs.length && inputs[cursor].size() <= k) cursor++;
+            bucketEnd[k] = cursor;
+        }
+
+        this.postings = buildPostings(inputs, maxId, false);
+        this.supplyPostings = expanded ? buildPostings(inputs, maxId, true) : postings;
+    }
+
+    private static int[][] buildPostings(InputMultiset[] inputs, int maxId, boolean supplySide) {
+        int[] postingSizes = new int[maxId + 1];
+        for (InputMultiset in : inputs) {
+            if (supplySide) in = in.supply();
+            for (int j = 0; j < in.size(); j++) postingSizes[in.id(j)]++;
+        }
+        int[][] postings = new int[maxId + 1][];
+        for (int id = 0; id <= maxId; id++) {
+            postings[id] = postingSizes[id] == 0 ? NO_POSTINGS : new int[postingSizes[id]];
+            postingSizes[id] = 0;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            InputMultiset in = supplySide ? inputs[i].supply() : inputs[i];
+            for (int j = 0; j < in.size(); j++) {
+                int id = in.id(j);
+                postings[id][postingSizes[id]++] = i;
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * 为给定的全局范围构建索引。
+     */
+    public static ScopeIndex of(Collection<IConflictRecipe> globalScope) {
+        return new ScopeIndex(new LinkedHashSet<>(globalScope).toArray(new IConflictRecipe[0]));
+    }
+
+    /** 范围内的配方数量。 */
+    public int size() {
+        return recipes.length;
+    }
+
+    /** 范围内第 i 个配方。 */
+    public IConflictRecipe recipe(int i) {
+        return recipes[i];
+    }
+
+    /** 配方在范围内的下标，不在范围内时返回 -1。 */
+    public int indexOf(IConflictRecipe recipe) {
+        Integer position = positions.get(recipe);
+        return position == null ? -1 : position;
+    }
+
+    /** 构建一个"集合成员"掩码：下标处为 true 的范围内配方属于给定集合。 */
+    public boolean[] maskOf(Collection<IConflictRecipe> members) {
+        boolean[] mask = new boolean[recipes.length];
+        for (IConflictRecipe member : members) {
+            int i = indexOf(member);
+            if (i >= 0) mask[i] = true;
+        }
+        return mask;
+    }
+
+    /** 范围内第 i 个配方的输入。 */
+    InputMultiset inputs(int i) {
+        return inputs[i];
+    }
+
+    /** 使用指定原料的范围内配方下标 (升序)。返回内部数组，调用方不得修改。 */
+    int[] postings(int ingredientId) {
+        return ingredientId < postings.length ? postings[ingredientId] : NO_POSTINGS;
+    }
+
+    /** 供给指定原料 (需求它本身，或需求属于它的物品/标签) 的范围内配方下标 (升序)。返回内部数组，调用方不得修改。 */
+    int[] supplyPostings(int ingredientId) {
+        return ingredientId < supplyPostings.length ? supplyPostings[ingredientId] : NO_POSTINGS;
+    }
+
+    /** 供给指定原料的范围内配方数量。 */
+    int supplyFrequencyOf(int ingredientId) {
+        return ingredientId < supplyPostings.length ? supplyPostings[ingredientId].length : 0;
+    }
+
+    /** 范围内出现过的最大原料ID，没有原料时为 -1。 */
+    int maxId() {
+        return postings.length - 1;
+    }
+
+    /** 使用指定原料的范围内配方数量。 */
+    public int frequencyOf(int ingredientId) {
+        return ingredientId < postings.length ? postings[ingredientId].length : 0;
+    }
+
+    /**
+     * 在范围内寻找一个被并集覆盖、且不属于集合自身的配方。
+     *
+     * @param unionCounts   以驻留ID为下标的并集数量数组。
+     * @param unionPresence 与之对应的存在性位图。
+     * @param distinct      并集 (不含 extra) 中不同原料的数量。
+     * @param extra         如果不为 null，则并集视为额外加上它的供给 (不修改数组)，并且只检查需求其供给中至少一种原料的配方。
+     *                      这适用于"在已知安全的集合上加入 extra"这种增量场景；为 null 时检查全部配方。
+     * @param excluded      成员掩码，为 true 的下标属于集合自身，不算外部冲突。
+     * @param extraIndex    extra 对应配方在范围内的下标 (它同样属于集合自身)，没有时为 -1。
+     * @return 第一个被覆盖的外部配方的下标，没有则返回 -1。
+     */
+    public int findCovered(long[] unionCounts, long[] unionPresence, int distinct, InputMultiset extra,
+                           boolean[] excluded, int extraIndex) {
+        for (int i = 0; i < emptyCount; i++) {
+            if (!excluded[i] && i != extraIndex) return i;
+        }
+
+        if (extra == null) {
+            // 全量检查：只需扫描原料种类数不超过并集的桶
+            int end = bucketEnd[Math.min(distinct, bucketEnd.length - 1)];
+            for (int i = emptyCount; i < end; i++) {
+                if (isCovered(i, unionCounts, unionPresence, null, excluded, extraIndex)) return i;
+            }
+            return -1;
+        }
+
+        InputMultiset extraSupply = extra.supply();
+        for (int j = 0; j < extraSupply.size(); j++) {
+            if (!isPresent(unionPresence, extraSupply.id(j))) distinct++;
+        }
+        int end = bucketEnd[Math.min(distinct, bucketEnd.length - 1)];
+
+        // 增量检查：沿 extra 供给的每种原料的倒排表扫描
+        for (int j = 0; j < extraSupply.size(); j++) {
+            int id = extraSupply.id(j);
+            if (id >= postings.length) continue;
+            for (int i : postings[id]) {
+                if (i >= end) break; // 倒排表按原料种类数升序，后面的更不可能被覆盖
+                if (seenViaEarlierIngredient(inputs[i], extraSupply, j)) continue;
+                if (isCovered(i, unionCounts, unionPresence, extra, excluded, extraIndex)) return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isCovered(int i, long[] unionCounts, long[] unionPresence, InputMultiset extra,
+                              boolean[] excluded, int extraIndex) {
+        InputMultiset in = inputs[i];
+        return in.isPresentIn(unionPresence, extra) && in.isCoveredBy(unionCounts, 0, extra)
+                && !excluded[i] && i != extraIndex;
+    }
+
+    private static boolean isPresent(long[] presence, int id) {
+        int w = id >>> 6;
+        return w < presence.length && (presence[w] & (1L << id)) != 0;
+    }
+
+    /**
+     * 一个配方可能含有 extra 的多种原料，只在其中下标最小的那一种的倒排表里检查它，避免重复工作。
+     */
+    private static boolean seenViaEarlierIngredient(InputMultiset recipeInputs, InputMultiset extra, int j) {
+        for (int k = 0; k < j; k++) {
+            if (recipeInputs.contains(extra.id(k))) return true;
+        }
+        return false;
+    }
+}
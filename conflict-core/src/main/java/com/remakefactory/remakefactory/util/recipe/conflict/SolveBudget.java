@@ -0,0 +1,116 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 精确求解器的计算预算：截止时间、搜索节点上限以及协作式取消。
+ * 预算耗尽后求解器不会再展开新节点，而是返回目前找到的最优解以及可证明的上界。
+ * 求解过程中还可以从其他线程读取已展开的节点数和目前最优解的大小，用于报告进度。
+ * 求解器把计数器和阶段耗时记录到预算附带的 {@link SolverStats} 中。
+ * <p>
+ * 一个预算对象只应当用于一次求解；可以被多个工作线程同时消耗。
+ */
+public final class SolveBudget {
+
+    private final long deadlineNanos;
+    private final long nodeLimit;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicInteger incumbent = new AtomicInteger();
+    private final SolverStats stats;
+    private volatile boolean cancelled;
+    private volatile boolean exhausted;
+
+    private SolveBudget(long deadlineNanos, long nodeLimit, SolverStats stats) {
+        this.deadlineNanos = deadlineNanos;
+        this.nodeLimit = nodeLimit;
+        this.stats = stats;
+    }
+
+    /** 没有任何限制的预算 (仍然可以被取消)。 */
+    public static SolveBudget unlimited() {
+        return unlimited(new SolverStats());
+    }
+
+    /** 同 {@link #unlimited()}，统计记录到调用方给出的对象中。 */
+    public static SolveBudget unlimited(SolverStats stats) {
+        return new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, stats);
+    }
+
+    /**
+     * @param timeLimitMillis 时间上限 (毫秒)，小于等于0表示不限制。
+     * @param nodeLimit       搜索节点上限，小于等于0表示不限制。
+     */
+    public static SolveBudget of(long timeLimitMillis, long nodeLimit) {
+        return of(timeLimitMillis, nodeLimit, new SolverStats());
+    }
+
+    /** 同 {@link #of(long, long)}，统计记录到调用方给出的对象中 (例如覆盖整次分析、包含准备阶段的统计)。 */
+    public static SolveBudget of(long timeLimitMillis, long nodeLimit, SolverStats stats) {
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis) : Long.MAX_VALUE;
+        return new SolveBudget(deadline, nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE, stats);
+    }
+
+    /** 求解器的计数器和阶段耗时。 */
+    public SolverStats stats() {
+        return stats;
+    }
+
+    /** 请求停止搜索。 */
+    public void cancel() {
+        cancelled = true;
+        exhausted = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** 已展开的搜索节点数。 */
+    public long nodesExplored() {
+        return nodes.get();
+    }
+
+    /**
+     * 目前找到的最优解中除必须配方以外的配方数量。
+     * 按分量求解时是各分量当前最优解之和，因此与最终结果的口径一致 (最终结果再加上必须配方)。
+     */
+    public int incumbentSize() {
+        return incumbent.get();
+    }
+
+    /**
+     * 求解器的当前最优解增大了 delta 个配方。
+     */
+    void reportImprovement(int delta) {
+        incumbent.addAndGet(delta);
+    }
+
+    /**
+     * 记录展开了一个节点，并返回预算是否已经耗尽。一旦耗尽，之后的调用都会返回 true。
+     */
+    boolean consumeNode() {
+        if (exhausted) return true;
+        if (nodes.incrementAndGet() > nodeLimit
+                || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0)) {
+            exhausted = true;
+        }
+        return exhausted;
+    }
+
+    /**
+     * 检查截止时间 (不计入节点数) 并返回预算是否已经耗尽。供不展开搜索节点的阶段 (例如贪心组合) 响应超时和取消。
+     */
+    boolean checkDeadline() {
+        if (!exhausted && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+            exhausted = true;
+        }
+        return exhausted;
+    }
+
+    /** 预算是否已经耗尽 (超时、超出节点数或被取消)。 */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+}
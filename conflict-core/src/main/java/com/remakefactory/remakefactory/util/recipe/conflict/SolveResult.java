@@ -0,0 +1,23 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Set;
+
+/**
+ * 精确求解的结果。
+ *
+ * @param recipes       找到的无冲突集合 (包含必须配方)。
+ * @param upperBound    可证明的最优解大小上界 (同样包含必须配方)。求解完整结束时等于 {@code recipes.size()}。
+ * @param nodesExplored 展开的搜索节点数。
+ * @param reductions    搜索前预处理的统计。
+ */
+public record SolveResult(Set<IConflictRecipe> recipes, int upperBound, long nodesExplored, ReductionReport reductions) {
+
+    public SolveResult(Set<IConflictRecipe> recipes, int upperBound, long nodesExplored) {
+        this(recipes, upperBound, nodesExplored, ReductionReport.NONE);
+    }
+
+    /** 是否已证明为最优解 (预算内完成了完整搜索)。 */
+    public boolean isOptimal() {
+        return upperBound <= recipes.size();
+    }
+}
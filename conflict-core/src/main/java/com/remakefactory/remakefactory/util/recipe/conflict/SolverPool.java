@@ -0,0 +1,61 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 冲突求解专用的 Fork/Join 线程池。
+ * 不使用 {@link ForkJoinPool#commonPool()}，以免与游戏本身、其他Mod的并行流以及区块任务争抢线程。
+ * 冲突检测的所有并行工作 (求解、子集矩阵、贪心组合、配方准备) 都在这个线程池上运行。
+ */
+public final class SolverPool {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static volatile ForkJoinPool pool;
+    // 期望的并行度，0 表示默认值
+    private static volatile int configuredParallelism;
+
+    private SolverPool() {} // 静态工具类，无需实例化
+
+    /**
+     * 设置求解线程池的并行度，下一次 {@link #get()} 时生效。
+     * 已经提交到旧线程池的任务照常完成，旧线程池的线程空闲后自行退出。
+     *
+     * @param parallelism 线程数量；0 表示默认值 (CPU 核心数减一)。
+     */
+    public static void configure(int parallelism) {
+        configuredParallelism = Math.max(0, parallelism);
+    }
+
+    /**
+     * 获取 (必要时创建) 求解线程池。默认并行度为 CPU 核心数减一，为服务器主线程留出一个核心。
+     */
+    public static ForkJoinPool get() {
+        int parallelism = desiredParallelism();
+        ForkJoinPool current = pool;
+        if (current == null || current.getParallelism() != parallelism) {
+            synchronized (SolverPool.class) {
+                current = pool;
+                if (current == null || current.getParallelism() != parallelism) {
+                    current = pool = create(parallelism);
+                }
+            }
+        }
+        return current;
+    }
+
+    private static int desiredParallelism() {
+        int configured = configuredParallelism;
+        return configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    private static ForkJoinPool create(int parallelism) {
+        return new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("RemakeFactory-Conflict-Solver-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
@@ -0,0 +1,184 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 一次冲突分析的计数器和分阶段计时，用于定位耗时究竟花在内部检查、外部范围扫描、解析还是文件读写上。
+ * <p>
+ * 热路径上不直接写入共享计数器：每个单线程使用的 {@link UnionState} 和搜索任务先累加到自己的 {@link Tally}，
+ * 结束时再一次性合并进来，因此统计几乎不影响求解速度。多个分量或工作线程并行时，阶段耗时是各线程之和。
+ * <p>
+ * 每个阶段结束时提交一个 {@link ConflictPhaseEvent}，{@link #commitEvent} 提交覆盖整次分析的 {@link ConflictSolveEvent}，
+ * 两者都是 JDK Flight Recorder 事件，未开启录制时几乎没有开销。
+ * <p>
+ * 可以被多个线程同时写入。
+ */
+public final class SolverStats {
+
+    /** 计数器。 */
+    public enum Counter {
+        /** 增量安全检查 ({@link UnionState#canAdd}) 的次数。 */
+        SCOPE_CHECKS,
+        /** 两两多重集子集比较的次数 (含 {@link SubsetMatrix} 的计算)。 */
+        SUBSET_CHECKS,
+        /** 内部覆盖检查的次数：某个配方是否被其他成员的并集覆盖。 */
+        INTERNAL_CHECKS,
+        /** 因内部冲突 (含两两子集) 被拒绝的加入次数。 */
+        INTERNAL_CONFLICTS,
+        /** 沿倒排表进行的外部范围扫描次数。 */
+        EXTERNAL_SCANS,
+        /** 因外部冲突被拒绝的加入次数。 */
+        EXTERNAL_CONFLICTS,
+        /** 上界不超过当前最优解、提前结束的节点循环。 */
+        BOUND_PRUNES,
+        /** 过滤后剩余候选不足以超过当前最优解、因而没有展开的子节点。 */
+        CHILD_PRUNES,
+        /** 因预算耗尽而停止的展开。 */
+        BUDGET_CUTOFFS;
+
+        /** 用于日志和 JSON 的名称，例如 {@code scope_checks}。 */
+        public String id() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** 分析的阶段。 */
+    public enum Phase {
+        /** 解析配方输入、展开标签 (或读取缓存)。 */
+        PREPARE,
+        /** 搜索前的归约 (见 {@link CandidateReducer})。 */
+        REDUCE,
+        /** 连通分量分解。 */
+        DECOMPOSE,
+        /** 计算两两子集矩阵。 */
+        SUBSET_MATRIX,
+        /** 分支定界搜索 (含初始贪心)。 */
+        SEARCH,
+        /** 贪心组合。 */
+        GREEDY,
+        /** 局部搜索。 */
+        LOCAL_SEARCH,
+        /** 提取冲突证据。 */
+        EXPLAIN,
+        /** 写入结果文件。 */
+        WRITE;
+
+        /** 用于日志和 JSON 的名称，例如 {@code subset_matrix}。 */
+        public String id() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+    private final long startNanos = System.nanoTime();
+    private final ConflictSolveEvent event = new ConflictSolveEvent();
+
+    public SolverStats() {
+        event.begin();
+    }
+
+    public void add(Counter counter, long delta) {
+        if (delta != 0) counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /** 一个阶段累计的耗时 (纳秒)。 */
+    public long phaseNanos(Phase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /** 自创建以来经过的时间 (纳秒)。 */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * 开始计时一个阶段，用 try-with-resources 结束：
+     * <pre>{@code try (SolverStats.Timer timer = stats.time(Phase.REDUCE)) { ... }}</pre>
+     */
+    public Timer time(Phase phase) {
+        return new Timer(phase);
+    }
+
+    /**
+     * 提交覆盖整次分析 (自本对象创建起) 的 Flight Recorder 事件。
+     *
+     * @param analysis 分析的描述，例如必须配方的ID。
+     * @param recipes  参与分析的配方数量。
+     * @param result   结果集合的大小。
+     * @param nodes    展开的搜索节点数 (见 {@link SolveBudget#nodesExplored()})。
+     */
+    public void commitEvent(String analysis, int recipes, int result, long nodes) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.analysis = analysis;
+        event.recipes = recipes;
+        event.result = result;
+        event.nodes = nodes;
+        event.scopeChecks = get(Counter.SCOPE_CHECKS);
+        event.subsetChecks = get(Counter.SUBSET_CHECKS);
+        event.internalChecks = get(Counter.INTERNAL_CHECKS);
+        event.internalConflicts = get(Counter.INTERNAL_CONFLICTS);
+        event.externalScans = get(Counter.EXTERNAL_SCANS);
+        event.externalConflicts = get(Counter.EXTERNAL_CONFLICTS);
+        event.boundPrunes = get(Counter.BOUND_PRUNES);
+        event.childPrunes = get(Counter.CHILD_PRUNES);
+        event.budgetCutoffs = get(Counter.BUDGET_CUTOFFS);
+        event.commit();
+    }
+
+    /**
+     * 一个正在计时的阶段。
+     */
+    public final class Timer implements AutoCloseable {
+        private final Phase phase;
+        private final long start = System.nanoTime();
+        private final ConflictPhaseEvent phaseEvent = new ConflictPhaseEvent();
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            phaseEvent.begin();
+        }
+
+        @Override
+        public void close() {
+            phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+            phaseEvent.end();
+            if (phaseEvent.shouldCommit()) {
+                phaseEvent.phase = phase.id();
+                phaseEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * 单线程使用的计数器，热路径上只做普通的数组自增，由 {@link #flushTo} 合并进共享的统计。
+     */
+    static final class Tally {
+        private final long[] counts = new long[COUNTERS.length];
+
+        void increment(Counter counter) {
+            counts[counter.ordinal()]++;
+        }
+
+        void add(Counter counter, long delta) {
+            counts[counter.ordinal()] += delta;
+        }
+
+        /** 把累计的计数合并进 {@code stats} 并清零。 */
+        void flushTo(SolverStats stats) {
+            for (int i = 0; i < counts.length; i++) {
+                stats.add(COUNTERS[i], counts[i]);
+                counts[i] = 0;
+            }
+        }
+    }
+}
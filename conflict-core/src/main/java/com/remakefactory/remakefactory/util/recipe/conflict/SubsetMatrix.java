@@ -0,0 +1,87 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 候选之间两两"多重集子集"关系的位矩阵：第 i 行第 j 位为 1 表示候选 i 与 j 互为子集/超集 (两两冲突)。
+ * <p>
+ * 矩阵在一次分析开始时于 {@link SolverPool} 上按行并行计算一次 (n 个候选约占 n²/8 字节，几千个配方只需几 MB)，
+ * 之后求解器只需一次位与运算即可排除与当前选择两两冲突的候选，而不必重复比较多重集。
+ * 计算完成后不可变，可在多个线程之间共享。
+ */
+final class SubsetMatrix {
+
+    // 每个并行任务至少计算这么多行
+    private static final int ROWS_PER_TASK = 16;
+
+    private final int words;
+    private final long[][] rows;
+
+    private SubsetMatrix(int size) {
+        this.words = (size + 63) >>> 6;
+        this.rows = new long[size][];
+    }
+
+    /**
+     * 为给定的候选数组计算矩阵，下标与数组下标一致。
+     */
+    static SubsetMatrix compute(IConflictRecipe[] recipes) {
+        SubsetMatrix matrix = new SubsetMatrix(recipes.length);
+        InputMultiset[] inputs = new InputMultiset[recipes.length];
+        for (int i = 0; i < recipes.length; i++) inputs[i] = recipes[i].getInputs();
+        SolverPool.get().invoke(matrix.new RowTask(inputs, 0, recipes.length));
+        return matrix;
+    }
+
+    /** 每行所需的 long 数量，也是选择位图的长度。 */
+    int words() {
+        return words;
+    }
+
+    /** 候选 i 与 j 是否两两冲突。 */
+    boolean conflicts(int i, int j) {
+        return (rows[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+    /** 候选 i 是否与位图 {@code selection} 中的任何一个候选两两冲突。 */
+    boolean conflictsWithAny(int i, long[] selection) {
+        long[] row = rows[i];
+        for (int w = 0; w < words; w++) {
+            if ((row[w] & selection[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    private final class RowTask extends RecursiveAction {
+        private final InputMultiset[] inputs;
+        private final int from;
+        private final int to;
+
+        RowTask(InputMultiset[] inputs, int from, int to) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) rows[i] = computeRow(i);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(inputs, from, mid), new RowTask(inputs, mid, to));
+        }
+
+        private long[] computeRow(int i) {
+            long[] row = new long[words];
+            InputMultiset self = inputs[i];
+            for (int j = 0; j < inputs.length; j++) {
+                if (j == i) continue;
+                // isSubsetOf 先比较布隆字和存在性签名，绝大多数不相关的配方在这里就被排除
+                if (self.isSubsetOf(inputs[j]) || inputs[j].isSubsetOf(self)) row[j >>> 6] |= 1L << j;
+            }
+            return row;
+        }
+    }
+}
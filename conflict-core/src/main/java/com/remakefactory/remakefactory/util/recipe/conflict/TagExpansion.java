@@ -0,0 +1,131 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * 标签感知匹配：为一个配方范围内的需求计算"供给" (见 {@link InputMultiset#supply()})。
+ * <p>
+ * 需求标签 T 可以由 T 的任意成员满足，因此放进机器的原料除了自身，还能满足以下被范围内某个配方需求的标签：
+ * <ul>
+ *     <li>物品 X 供给所有包含 X 的标签；</li>
+ *     <li>标签 T' 供给所有成员集合包含 T' 全部成员的标签 T (无论实际放入 T' 的哪个成员，它都属于 T)；
+ *     只有一个成员 X 的标签还供给物品 X。</li>
+ * </ul>
+ * 每个被需求的标签在构建时解析一次为以驻留ID为位下标的成员位图，标签之间的包含关系用按字的位运算判断。
+ * 之后求解器只做逐ID的数量比较，与没有标签时完全相同，不会变慢。
+ * <p>
+ * 这是一个保守的近似：同一个物品满足多个标签需求时数量会被重复计算，因此可能多报冲突，但不会漏报。
+ * 只展开到范围内实际被需求的标签，未被需求的标签不会进入供给。
+ */
+public final class TagExpansion {
+
+    /** 不做任何展开。 */
+    public static final TagExpansion NONE = new TagExpansion(Map.of());
+
+    private static final String TAG_PREFIX = "tag:";
+
+    // 需求原料ID -> 它额外供给的原料ID
+    private final Map<Integer, int[]> supplyTargets;
+
+    private TagExpansion(Map<Integer, int[]> supplyTargets) {
+        this.supplyTargets = supplyTargets;
+    }
+
+    /**
+     * 为一组需求 (通常是一个配方类型的全部配方) 构建展开表。
+     *
+     * @param demands    范围内所有配方的需求。
+     * @param tagMembers 标签原料ID -> 成员物品的驻留ID位图 (不存在或为空的标签返回空数组)。
+     */
+    public static TagExpansion of(Collection<InputMultiset> demands, IntFunction<long[]> tagMembers) {
+        BitSet demandIds = new BitSet();
+        for (InputMultiset demand : demands) {
+            for (int j = 0; j < demand.size(); j++) demandIds.set(demand.id(j));
+        }
+        List<Integer> tags = new ArrayList<>();
+        for (int id = demandIds.nextSetBit(0); id >= 0; id = demandIds.nextSetBit(id + 1)) {
+            if (IngredientInterner.keyOf(id).startsWith(TAG_PREFIX)) tags.add(id);
+        }
+        if (tags.isEmpty()) return NONE;
+
+        Map<Integer, long[]> members = new HashMap<>(tags.size() * 2);
+        for (int tag : tags) members.put(tag, tagMembers.apply(tag));
+
+        Map<Integer, List<Integer>> targets = new HashMap<>();
+        for (int tag : tags) {
+            long[] tagBits = members.get(tag);
+            // 物品 -> 包含它的标签：遍历标签的成员位，只保留范围内被需求的物品
+            for (int w = 0; w < tagBits.length; w++) {
+                long word = tagBits[w];
+                while (word != 0) {
+                    int item = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (demandIds.get(item)) targets.computeIfAbsent(item, k -> new ArrayList<>()).add(tag);
+                }
+            }
+            // 标签 -> 成员集合包含它的其他标签。先用第一个成员位排除绝大多数标签，再逐字比较
+            int first = firstMember(tagBits);
+            if (first < 0) continue;
+            for (int other : tags) {
+                if (other == tag) continue;
+                long[] otherBits = members.get(other);
+                if ((first >>> 6) >= otherBits.length || (otherBits[first >>> 6] & (1L << first)) == 0) continue;
+                if (isSubset(tagBits, otherBits, first >>> 6)) {
+                    targets.computeIfAbsent(tag, k -> new ArrayList<>()).add(other);
+                }
+            }
+            int single = singleMember(tagBits);
+            if (single >= 0 && demandIds.get(single)) targets.computeIfAbsent(tag, k -> new ArrayList<>()).add(single);
+        }
+
+        Map<Integer, int[]> supplyTargets = new HashMap<>(targets.size() * 2);
+        targets.forEach((id, list) -> supplyTargets.put(id, list.stream().mapToInt(Integer::intValue).toArray()));
+        return new TagExpansion(supplyTargets);
+    }
+
+    /**
+     * 为一个需求附加供给。不涉及任何标签时原样返回。
+     */
+    public InputMultiset expand(InputMultiset demand) {
+        InputMultiset.Builder supply = null;
+        for (int j = 0; j < demand.size(); j++) {
+            int[] extra = supplyTargets.get(demand.id(j));
+            if (extra == null) continue;
+            if (supply == null) {
+                supply = new InputMultiset.Builder();
+                for (int k = 0; k < demand.size(); k++) supply.add(demand.id(k), demand.count(k));
+            }
+            for (int target : extra) supply.add(target, demand.count(j));
+        }
+        return supply == null ? demand : demand.withSupply(supply.build());
+    }
+
+    /** 位图中最小的成员，空位图返回 -1。 */
+    private static int firstMember(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0) return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+        }
+        return -1;
+    }
+
+    /** {@code (sub & ~sup) == 0}，从 sub 的第一个非零字开始按字比较。 */
+    private static boolean isSubset(long[] sub, long[] sup, int fromWord) {
+        for (int w = fromWord; w < sub.length; w++) {
+            long supWord = w < sup.length ? sup[w] : 0L;
+            if ((sub[w] & ~supWord) != 0) return false;
+        }
+        return true;
+    }
+
+    /** 位图中唯一的成员，成员数不为 1 时返回 -1。 */
+    private static int singleMember(long[] bits) {
+        int member = -1;
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] == 0) continue;
+            if (member >= 0 || Long.bitCount(bits[w]) != 1) return -1;
+            member = (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+        }
+        return member;
+    }
+}
@@ -0,0 +1,287 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 求解器使用的增量并集状态。
+ * <p>
+ * 维护当前已选配方的总并集 (稠密数量数组 + 存在性位图 + 不同原料数)，
+ * 支持以 O(|配方输入|) 的代价压入/弹出一个配方。"除某配方之外的并集"
+ * 直接由"总并集减去该配方"得到，无需重新构建。
+ * <p>
+ * 状态本身不是线程安全的；{@link #canAdd} 只读取状态，可以在没有写入者时被多个线程同时调用
+ * (此时不能通过 {@link #countInto} 启用计数)。
+ */
+public final class UnionState {
+
+    private final ScopeIndex scopeIndex;
+    private long[] counts;
+    private long[] presence;
+    private int distinct;
+
+    private IConflictRecipe[] members = new IConflictRecipe[16];
+    private int[] memberScopeIndex = new int[16];
+    private int size;
+    // 范围内下标 -> 是否已在集合中，供外部检查排除集合自身
+    private final boolean[] inSet;
+    // 检查的计数，为 null 时不计数
+    private SolverStats.Tally tally;
+
+    public UnionState(ScopeIndex scopeIndex) {
+        this.scopeIndex = scopeIndex;
+        int capacity = Math.max(64, IngredientInterner.size());
+        this.counts = new long[capacity];
+        this.presence = new long[(capacity + 63) >>> 6];
+        this.inSet = new boolean[scopeIndex.size()];
+    }
+
+    public ScopeIndex scopeIndex() {
+        return scopeIndex;
+    }
+
+    /**
+     * 此后的安全检查计数到 {@code tally} 中 (为 null 时停止计数)。只能用于单线程使用的状态。
+     */
+    void countInto(SolverStats.Tally tally) {
+        this.tally = tally;
+    }
+
+    /** 当前集合中的配方数量。 */
+    public int size() {
+        return size;
+    }
+
+    /** 按压入顺序的第 i 个配方。 */
+    public IConflictRecipe get(int i) {
+        return members[i];
+    }
+
+    /** 配方是否在当前集合中。范围内的配方通过成员掩码 O(1) 判断，其余配方逐个比较。 */
+    public boolean contains(IConflictRecipe recipe) {
+        int scopePosition = scopeIndex.indexOf(recipe);
+        if (scopePosition >= 0) return inSet[scopePosition];
+        for (int i = 0; i < size; i++) {
+            if (members[i].equals(recipe)) return true;
+        }
+        return false;
+    }
+
+    /** 当前集合的一个独立副本。 */
+    public Set<IConflictRecipe> toSet() {
+        Set<IConflictRecipe> set = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) set.add(members[i]);
+        return set;
+    }
+
+    /**
+     * 检查当前集合是否被范围内的某个外部配方覆盖 (全量外部检查)。
+     * 通常只在压入第一个 (必须的) 配方后调用一次，之后的增量检查都以此为前提。
+     */
+    public boolean hasExternalCover() {
+        return scopeIndex.findCovered(counts, presence, distinct, null, inSet, -1) >= 0;
+    }
+
+    /**
+     * [增量检查] 在不修改状态的前提下，判断向当前 (已知安全的) 集合中加入一个配方后是否仍然安全。
+     */
+    public boolean canAdd(IConflictRecipe recipe) {
+        return canAdd(recipe, true);
+    }
+
+    /**
+     * 与 {@link #canAdd(IConflictRecipe)} 相同，但调用方已经确认新配方与所有成员都不互为子集/超集
+     * (例如通过 {@link SubsetMatrix})，因此跳过两两子集比较。
+     * 两两比较本身只是快速路径：子集关系也会被下面的覆盖检查发现，跳过它不会改变结果。
+     */
+    boolean canAddPairwiseCompatible(IConflictRecipe recipe) {
+        return canAdd(recipe, false);
+    }
+
+    private boolean canAdd(IConflictRecipe recipe, boolean checkPairwise) {
+        count(SolverStats.Counter.SCOPE_CHECKS);
+        InputMultiset in = recipe.getInputs();
+
+        // 1. 两两检查 + 旧配方是否会被“其他旧配方+新配方”组合而成。
+        //    集合原本安全，所以只有与新配方共享原料的旧配方才可能新近被覆盖。
+        for (int i = 0; i < size; i++) {
+            InputMultiset old = members[i].getInputs();
+            if (!old.isEmpty() && !old.intersects(in)) continue;
+            if (checkPairwise) {
+                count(SolverStats.Counter.SUBSET_CHECKS);
+                if (in.isSubsetOf(old) || old.isSubsetOf(in)) return count(SolverStats.Counter.INTERNAL_CONFLICTS);
+            }
+            count(SolverStats.Counter.INTERNAL_CHECKS);
+            if (old.isCoveredBy(counts, 1, in)) return count(SolverStats.Counter.INTERNAL_CONFLICTS);
+        }
+
+        // 2. 新配方是否会被旧配方组合而成
+        count(SolverStats.Counter.INTERNAL_CHECKS);
+        if (in.isCoveredBy(counts, 0)) return count(SolverStats.Counter.INTERNAL_CONFLICTS);
+
+        // 3. 外部冲突：只沿新配方各原料的倒排表检查
+        count(SolverStats.Counter.EXTERNAL_SCANS);
+        if (scopeIndex.findCovered(counts, presence, distinct, in, inSet, scopeIndex.indexOf(recipe)) >= 0) {
+            return count(SolverStats.Counter.EXTERNAL_CONFLICTS);
+        }
+        return true;
+    }
+
+    /**
+     * 启用计数时累加一次计数器。总是返回 false，便于在拒绝处直接 {@code return count(...)}。
+     */
+    private boolean count(SolverStats.Counter counter) {
+        if (tally != null) tally.increment(counter);
+        return false;
+    }
+
+    // =================================================================================
+    // == 冲突定位 (供 ConflictExplainer 使用，调用方须保证当前集合是安全的)             ==
+    // =================================================================================
+
+    /** 新配方是否被当前成员的并集覆盖。 */
+    boolean isCoveredByMembers(InputMultiset in) {
+        return in.isCoveredBy(counts, 0);
+    }
+
+    /**
+     * 加入 {@code extra} 后第一个被"其他成员 + extra"覆盖的成员，没有则返回 {@code null}。
+     */
+    IConflictRecipe findMemberCoveredWith(InputMultiset extra) {
+        for (int i = 0; i < size; i++) {
+            InputMultiset old = members[i].getInputs();
+            if (!old.isEmpty() && !old.intersects(extra)) continue;
+            if (old.isCoveredBy(counts, 1, extra)) return members[i];
+        }
+        return null;
+    }
+
+    /**
+     * 加入 {@code extra} 后第一个被并集覆盖的外部范围配方，没有则返回 {@code null}。
+     */
+    IConflictRecipe findExternalCoveredWith(IConflictRecipe extra) {
+        int i = scopeIndex.findCovered(counts, presence, distinct, extra.getInputs(), inSet, scopeIndex.indexOf(extra));
+        return i < 0 ? null : scopeIndex.recipe(i);
+    }
+
+    /**
+     * 供给与给定需求共享至少一种原料的成员 (没有输入的成员也算在内)，按压入顺序。
+     * 倒排表比成员列表短时沿范围索引的供给倒排表查找，否则直接扫描成员。
+     */
+    List<IConflictRecipe> membersSharingInputsWith(InputMultiset in) {
+        long postingsLength = 0;
+        for (int j = 0; j < in.size(); j++) postingsLength += scopeIndex.supplyFrequencyOf(in.id(j));
+
+        List<IConflictRecipe> shared = new ArrayList<>();
+        if (postingsLength >= size) {
+            for (int i = 0; i < size; i++) {
+                InputMultiset old = members[i].getInputs();
+                if (old.isEmpty() || old.intersects(in)) shared.add(members[i]);
+            }
+            return shared;
+        }
+
+        Set<Integer> hits = new HashSet<>();
+        for (int j = 0; j < in.size(); j++) {
+            for (int i : scopeIndex.supplyPostings(in.id(j))) {
+                if (inSet[i]) hits.add(i);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            // 不在范围内的成员无法通过倒排表找到，逐个比较
+            boolean sharesInputs = memberScopeIndex[i] >= 0
+                    ? hits.contains(memberScopeIndex[i])
+                    : members[i].getInputs().intersects(in);
+            if (sharesInputs || members[i].getInputs().isEmpty()) shared.add(members[i]);
+        }
+        return shared;
+    }
+
+    /**
+     * 如果加入是安全的，则压入该配方。
+     *
+     * @return 是否成功压入。
+     */
+    public boolean tryPush(IConflictRecipe recipe) {
+        if (!canAdd(recipe)) return false;
+        push(recipe);
+        return true;
+    }
+
+    /**
+     * 不做任何检查地压入一个配方 (调用方已知其安全)。
+     */
+    public void push(IConflictRecipe recipe) {
+        // 并集累加的是供给 (没有标签展开时就是输入本身)
+        InputMultiset in = recipe.getInputs().supply();
+        ensureCapacity(in.maxId() + 1);
+        for (int j = 0; j < in.size(); j++) {
+            int id = in.id(j);
+            if (counts[id] == 0) {
+                presence[id >>> 6] |= 1L << id;
+                distinct++;
+            }
+            counts[id] += in.count(j);
+        }
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+            memberScopeIndex = Arrays.copyOf(memberScopeIndex, size * 2);
+        }
+        int scopePosition = scopeIndex.indexOf(recipe);
+        members[size] = recipe;
+        memberScopeIndex[size] = scopePosition;
+        size++;
+        if (scopePosition >= 0) inSet[scopePosition] = true;
+    }
+
+    /**
+     * 撤销最近一次压入。
+     *
+     * @return 被弹出的配方。
+     */
+    public IConflictRecipe pop() {
+        size--;
+        IConflictRecipe recipe = members[size];
+        members[size] = null;
+        if (memberScopeIndex[size] >= 0) inSet[memberScopeIndex[size]] = false;
+        InputMultiset in = recipe.getInputs().supply();
+        for (int j = 0; j < in.size(); j++) {
+            int id = in.id(j);
+            counts[id] -= in.count(j);
+            if (counts[id] == 0) {
+                presence[id >>> 6] &= ~(1L << id);
+                distinct--;
+            }
+        }
+        return recipe;
+    }
+
+    /**
+     * 从集合中移除任意一个配方 (不要求是最近压入的)。安全集合的子集仍然安全，因此移除后状态依然满足增量检查的前提。
+     * 为了不移动整个成员数组，原本的栈顶成员会被换到空出的位置，因此此后 {@link #pop} 弹出的不一定是移除前的栈顶。
+     *
+     * @return 配方原本是否在集合中。
+     */
+    public boolean remove(IConflictRecipe recipe) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (members[i].equals(recipe)) {
+                int last = size - 1;
+                IConflictRecipe top = members[last];
+                int topScopeIndex = memberScopeIndex[last];
+                members[last] = members[i];
+                memberScopeIndex[last] = memberScopeIndex[i];
+                members[i] = top;
+                memberScopeIndex[i] = topScopeIndex;
+                pop();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= counts.length) return;
+        int capacity = Math.max(required, counts.length * 2);
+        counts = Arrays.copyOf(counts, capacity);
+        presence = Arrays.copyOf(presence, (capacity + 63) >>> 6);
+    }
+}
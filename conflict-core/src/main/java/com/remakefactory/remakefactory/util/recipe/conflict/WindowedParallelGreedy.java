@@ -0,0 +1,89 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 窗口化的并行贪心：结果与按相同顺序逐个尝试的顺序贪心完全一致。
+ * <p>
+ * 每次取出接下来的一个窗口，并发地用只读的 {@link UnionState#canAdd} 检查窗口内的候选：
+ * <ul>
+ *     <li>检查失败的候选以后也不可能加入 (集合只会变大，不安全性对超集单调)，直接丢弃；</li>
+ *     <li>按顺序提交第一个通过的候选，这正是顺序贪心在此处会做的选择；</li>
+ *     <li>窗口中排在它后面、此前通过的候选只需针对这一次加入重新检查，然后重复上一步。</li>
+ * </ul>
+ * 检查阶段只有读者，提交阶段只有调用线程一个写者，因此共享同一个状态是安全的。
+ */
+final class WindowedParallelGreedy {
+
+    // 每个并行任务至少检查这么多候选，避免拆分开销超过检查本身
+    private static final int MIN_CANDIDATES_PER_TASK = 4;
+    // 窗口大小 = 并行度 * 此值
+    private static final int WINDOW_PER_THREAD = 8;
+
+    private final UnionState state;
+    private final List<IConflictRecipe> ordered;
+
+    private WindowedParallelGreedy(UnionState state, List<IConflictRecipe> ordered) {
+        this.state = state;
+        this.ordered = ordered;
+    }
+
+    /**
+     * @param state   已压入必须配方、且已确认安全的状态。
+     * @param ordered 按贪心顺序排列的候选。
+     * @return 贪心结果 (包含状态中原有的配方)。
+     */
+    static Set<IConflictRecipe> run(UnionState state, List<IConflictRecipe> ordered) {
+        return new WindowedParallelGreedy(state, ordered).run();
+    }
+
+    private Set<IConflictRecipe> run() {
+        int window = Math.max(MIN_CANDIDATES_PER_TASK, SolverPool.get().getParallelism() * WINDOW_PER_THREAD);
+        boolean[] safe = new boolean[window];
+        for (int start = 0; start < ordered.size(); start += window) {
+            int end = Math.min(ordered.size(), start + window);
+            Arrays.fill(safe, true);
+
+            int from = start;
+            while (from < end) {
+                // 并发检查 [from, end) 中仍然标记为安全的候选
+                SolverPool.get().invoke(new CheckTask(safe, start, from, end));
+                int first = from;
+                while (first < end && !safe[first - start]) first++;
+                if (first == end) break;
+                state.push(ordered.get(first));
+                from = first + 1;
+            }
+        }
+        return state.toSet();
+    }
+
+    private final class CheckTask extends RecursiveAction {
+        private final boolean[] safe;
+        private final int offset;
+        private final int from;
+        private final int to;
+
+        CheckTask(boolean[] safe, int offset, int from, int to) {
+            this.safe = safe;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CANDIDATES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    if (safe[i - offset]) safe[i - offset] = state.canAdd(ordered.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CheckTask(safe, offset, from, mid), new CheckTask(safe, offset, mid, to));
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.remakefactory.remakefactory.util.recipe.conflict.cli;
+
+import com.remakefactory.remakefactory.util.recipe.conflict.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线冲突分析器：不启动游戏，直接分析 /ref conflict dump 写出的配方转储 (见 {@link RecipeDump})，
+ * 供整合包的持续集成在每次数据包改动后检查配方歧义。
+ * <ul>
+ *     <li>{@code greedy}：与游戏内单配方模式相同，在必须配方所属的整个配方类型中用贪心组合 (可选局部搜索) 求最大安全集合；</li>
+ *     <li>{@code exact}：与游戏内多配方模式相同，对列出的配方 (或书签文件中的配方) 用并行分支定界求最大安全子集；</li>
+ *     <li>{@code scan}：与 /ref conflict scan 相同，在各配方类型中并行查找歧义配方。</li>
+ * </ul>
+ * greedy 和 exact 写出与游戏内格式相同的书签文件，三种模式都写出报告 (摘要、计数器、各阶段耗时，以及可选的排除理由)。
+ * 求解线程池默认使用全部处理器核心。
+ * <p>
+ * 退出码：0 表示成功；1 表示指定了 {@code --fail-on-conflict} 且发现了冲突 (scan 发现歧义，或 exact 列出的配方不能全部共存)；
+ * 2 表示参数错误或读写失败。
+ */
+public final class ConflictAnalyzer {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_CONFLICT = 1;
+    private static final int EXIT_ERROR = 2;
+
+    private static final String DEFAULT_NAMESPACE = "gtceu";
+    private static final int MAX_EXPLAINED_REJECTIONS = 1000; // 与游戏内相同，报告中排除理由的上限
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: conflict-analyzer <greedy|exact|scan> <recipe dump> [options]",
+            "  greedy --recipe <id>                      largest conflict-free set containing the recipe, searched over its whole recipe type",
+            "  exact  --recipes <id,id,...> | --bookmarks <bookmarks.ini>",
+            "                                            largest conflict-free subset of the listed recipes (the first one, or --recipe, is mandatory)",
+            "  scan   [--type <recipe type>]             ambiguous recipes in every recipe type (or one)",
+            "Options:",
+            "  --out <dir>           output directory (default: current directory)",
+            "  --time <seconds>      greedy: local search time after the greedy portfolio (default 0: none)",
+            "                        exact: time limit, the best set found so far is written when it runs out (default 0: unlimited)",
+            "  --threads <n>         solver threads (default: all cores)",
+            "  --namespace <ns>      namespace of the bookmarks read by --bookmarks and of the written bookmark file (default: gtceu)",
+            "  --explain             list why each excluded recipe was excluded",
+            "  --fail-on-conflict    exit with status 1 when scan finds ambiguities or exact cannot keep every listed recipe");
+
+    private final Map<String, List<PlainConflictRecipe>> types;
+    private final Map<String, PlainConflictRecipe> recipesById = new HashMap<>();
+    private final Map<String, String> typeById = new HashMap<>();
+    private final Options options;
+    private final SolverStats stats;
+    private final PrintStream out;
+
+    private ConflictAnalyzer(Map<String, List<PlainConflictRecipe>> types, Options options, SolverStats stats, PrintStream out) {
+        this.types = types;
+        this.options = options;
+        this.stats = stats;
+        this.out = out;
+        types.forEach((type, recipes) -> {
+            for (PlainConflictRecipe recipe : recipes) {
+                recipesById.putIfAbsent(recipe.id(), recipe);
+                typeById.putIfAbsent(recipe.id(), type);
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * 执行一次分析。
+     *
+     * @return 退出码。
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_ERROR;
+        }
+        SolverPool.configure(options.threads);
+        SolverStats stats = new SolverStats();
+        try {
+            Map<String, List<PlainConflictRecipe>> types;
+            try (SolverStats.Timer timer = stats.time(SolverStats.Phase.PREPARE)) {
+                types = RecipeDump.read(options.dump);
+            }
+            out.printf("Read %d recipes in %d recipe types from %s%n", types.values().stream().mapToInt(List::size).sum(), types.size(), options.dump);
+            ConflictAnalyzer analyzer = new ConflictAnalyzer(types, options, stats, out);
+            return switch (options.mode) {
+                case "greedy" -> analyzer.greedy();
+                case "exact" -> analyzer.exact();
+                default -> analyzer.scan();
+            };
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            return EXIT_ERROR;
+        } catch (IOException e) {
+            err.println("I/O error: " + e);
+            return EXIT_ERROR;
+        }
+    }
+
+    // =================================================================================
+    // == 三种分析                                                                     ==
+    // =================================================================================
+
+    private int greedy() throws UsageException, IOException {
+        if (options.recipe == null) throw new UsageException("greedy needs --recipe <id>");
+        PlainConflictRecipe mandatory = resolve(options.recipe);
+        String type = typeById.get(mandatory.id());
+        List<IConflictRecipe> searchSpace = new ArrayList<>(types.get(type));
+        ScopeIndex scopeIndex = ScopeIndex.of(searchSpace);
+        out.printf("Single-recipe mode: %s against %d recipes of %s%n", mandatory.id(), searchSpace.size(), type);
+
+        // --time 只限制局部搜索，贪心组合总是完整运行
+        PortfolioResult portfolio = ConflictDetector.findLargestConflictFreeSet_portfolio(mandatory, searchSpace, scopeIndex, SolveBudget.unlimited(stats));
+        Set<IConflictRecipe> finalSet = portfolio.recipes();
+        SolveBudget budget = SolveBudget.of(TimeUnit.SECONDS.toMillis(options.timeSeconds), 0, stats);
+        if (options.timeSeconds > 0) {
+            finalSet = ConflictDetector.findLargestConflictFreeSet_localSearch(mandatory, finalSet, searchSpace, scopeIndex, budget);
+        }
+        String summary = String.format("Kept %d of %d recipes (greedy heuristic %s, seed %d: %d recipes%s).", finalSet.size(), searchSpace.size(),
+                portfolio.heuristic().id(), portfolio.seed(), portfolio.recipes().size(),
+                options.timeSeconds > 0 ? String.format(", then %d s of local search", options.timeSeconds) : "");
+        List<String> explanations = options.explain ? explain(finalSet, searchSpace, scopeIndex) : List.of();
+        finish("greedy", summary, finalSet, explanations, budget.nodesExplored());
+        return EXIT_OK;
+    }
+
+    private int exact() throws UsageException, IOException {
+        List<String> ids = options.bookmarks != null ? readBookmarks(options.bookmarks, options.namespace) : options.recipes;
+        if (ids.isEmpty()) throw new UsageException("exact needs --recipes <id,id,...> or a --bookmarks file with recipes of namespace '" + options.namespace + "'");
+        Set<IConflictRecipe> initialSet = new LinkedHashSet<>();
+        if (options.recipe != null) initialSet.add(resolve(options.recipe));
+        for (String id : ids) {
+            PlainConflictRecipe recipe = recipesById.get(id);
+            if (recipe == null) {
+                out.printf("Skipping %s: not in the recipe dump%n", id);
+            } else {
+                initialSet.add(recipe);
+            }
+        }
+        if (initialSet.isEmpty()) throw new UsageException("None of the listed recipes are in the recipe dump");
+        IConflictRecipe mandatory = initialSet.iterator().next();
+        Set<IConflictRecipe> candidateSet = new HashSet<>(initialSet);
+        candidateSet.remove(mandatory);
+        out.printf("Multi-recipe mode: %d recipes, mandatory recipe %s, %d solver thread(s)%n", initialSet.size(), mandatory, SolverPool.get().getParallelism());
+
+        SolveBudget budget = SolveBudget.of(TimeUnit.SECONDS.toMillis(options.timeSeconds), 0, stats);
+        SolveResult result = ConflictDetector.findLargestConflictFreeSubset_multiThreaded(mandatory, candidateSet, initialSet, budget);
+        Set<IConflictRecipe> finalSet = result.recipes();
+        StringBuilder summary = new StringBuilder(String.format("Kept %d of %d recipes", finalSet.size(), initialSet.size()));
+        summary.append(result.isOptimal()
+                ? " (proven optimal)."
+                : String.format(" (time limit reached: the optimum is at most %d, %d nodes explored).", result.upperBound(), result.nodesExplored()));
+        ReductionReport reductions = result.reductions();
+        if (reductions.candidates() > 0) {
+            summary.append(String.format(" Reductions removed %d of %d candidates (%d subsets of the mandatory recipe, %d unsafe alongside it, %d duplicates).",
+                    reductions.removed(), reductions.candidates(), reductions.subsetOfMandatory(), reductions.unsafeAlongside(), reductions.duplicates()));
+        }
+        List<String> explanations = options.explain ? explain(finalSet, initialSet, ScopeIndex.of(initialSet)) : List.of();
+        finish("exact", summary.toString(), finalSet, explanations, budget.nodesExplored());
+        return options.failOnConflict && finalSet.size() < initialSet.size() ? EXIT_CONFLICT : EXIT_OK;
+    }
+
+    private int scan() throws UsageException, IOException {
+        List<String> scanned;
+        if (options.type != null) {
+            if (!types.containsKey(options.type)) throw new UsageException("Recipe type " + options.type + " is not in the recipe dump");
+            scanned = List.of(options.type);
+        } else {
+            scanned = new ArrayList<>(types.keySet());
+        }
+        out.printf("Scanning %d recipe types on %d solver thread(s)...%n", scanned.size(), SolverPool.get().getParallelism());
+
+        // 各类型互不相关，在求解线程池中并行扫描，结果保持转储中的顺序
+        SolveBudget budget = SolveBudget.unlimited(stats);
+        List<AmbiguityScanResult> found = SolverPool.get().submit(() -> scanned.parallelStream()
+                .map(type -> AmbiguityScanner.scan(ScopeIndex.of(new ArrayList<>(types.get(type))), budget))
+                .toList()).join();
+
+        int pairwise = 0;
+        int combinations = 0;
+        int truncated = 0;
+        List<String> lines = new ArrayList<>();
+        for (int t = 0; t < scanned.size(); t++) {
+            List<Ambiguity> ambiguities = found.get(t).ambiguities();
+            int truncatedRecipes = found.get(t).truncatedRecipes();
+            int pairs = 0;
+            for (Ambiguity ambiguity : ambiguities) if (ambiguity.cover().size() <= 1) pairs++;
+            pairwise += pairs;
+            combinations += ambiguities.size() - pairs;
+            truncated += truncatedRecipes;
+            lines.add("");
+            lines.add(String.format("## %s (%d recipes, %d pairwise, %d combinations, %d recipes truncated)", scanned.get(t), types.get(scanned.get(t)).size(),
+                    pairs, ambiguities.size() - pairs, truncatedRecipes));
+            for (Ambiguity ambiguity : ambiguities) lines.add(formatCover(ambiguity.covered(), ambiguity.cover()));
+        }
+        String summary = String.format("Found %d pairwise and %d combination conflicts across %d recipe types (%d recipes truncated).",
+                pairwise, combinations, scanned.size(), truncated);
+        Path report;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.WRITE)) {
+            report = writeReport("scan", summary, budget.nodesExplored(),
+                    List.of("# Format: <covered recipe> <= <covering recipe> [+ <covering recipe>]",
+                            "# Combination conflicts are searched with per-recipe partner limits; \"recipes truncated\" counts recipes that may have more unreported combinations."), lines);
+        }
+        out.println(summary);
+        out.println("Report: " + report);
+        return options.failOnConflict && pairwise + combinations > 0 ? EXIT_CONFLICT : EXIT_OK;
+    }
+
+    // =================================================================================
+    // == 辅助方法                                                                     ==
+    // =================================================================================
+
+    private PlainConflictRecipe resolve(String id) throws UsageException {
+        PlainConflictRecipe recipe = recipesById.get(id);
+        if (recipe == null) throw new UsageException("Recipe " + id + " is not in the recipe dump");
+        return recipe;
+    }
+
+    private List<String> explain(Set<IConflictRecipe> finalSet, Collection<IConflictRecipe> candidates, ScopeIndex scopeIndex) {
+        List<ConflictWitness> witnesses;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.EXPLAIN)) {
+            witnesses = ConflictDetector.explainRejections(finalSet, candidates, scopeIndex);
+        }
+        List<String> lines = new ArrayList<>();
+        for (ConflictWitness witness : witnesses.subList(0, Math.min(witnesses.size(), MAX_EXPLAINED_REJECTIONS))) {
+            lines.add(String.format("%s excluded: %s", witness.rejected(), formatCover(witness.covered(), witness.cover())));
+        }
+        if (witnesses.size() > MAX_EXPLAINED_REJECTIONS) {
+            lines.add(String.format("... %d more excluded recipes not listed", witnesses.size() - MAX_EXPLAINED_REJECTIONS));
+        }
+        return lines;
+    }
+
+    /**
+     * 写出书签文件和报告，并在标准输出上打印摘要。
+     */
+    private void finish(String mode, String summary, Set<IConflictRecipe> finalSet, List<String> explanations, long nodes) throws IOException {
+        Path bookmarks;
+        Path report;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.WRITE)) {
+            bookmarks = writeBookmarks(summary, finalSet);
+            report = writeReport(mode, summary, nodes, List.of(), explanations);
+        }
+        out.println(summary);
+        out.println("Bookmarks: " + bookmarks);
+        out.println("Report: " + report);
+    }
+
+    /**
+     * 与游戏内 /ref conflict bookmarks 相同格式的书签文件；转储中没有记录输出的配方无法写成书签，会被跳过。
+     */
+    private Path writeBookmarks(String summary, Set<IConflictRecipe> finalSet) throws IOException {
+        Path filePath = options.outputDir.resolve(String.format("bookmarks_%s.ini", options.namespace));
+        Files.createDirectories(options.outputDir);
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(String.format("# Optimized Recipe Bookmarks for namespace '%s' - Generated by RemakeFactory", options.namespace));
+            writer.newLine(); writer.write("# " + summary);
+            writer.newLine(); writer.write("# Timestamp: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+            writer.newLine();
+            writer.newLine();
+            for (IConflictRecipe recipe : finalSet) {
+                PlainConflictRecipe plain = (PlainConflictRecipe) recipe;
+                Optional<String> output = plain.output();
+                if (output.isPresent()) {
+                    writer.write(String.format("R:%s#%s#%s", typeById.get(plain.id()), plain.id(), output.get()));
+                    writer.newLine();
+                }
+            }
+        }
+        return filePath;
+    }
+
+    private Path writeReport(String mode, String summary, long nodes, List<String> headerLines, List<String> lines) throws IOException {
+        Path filePath = options.outputDir.resolve(String.format("conflict_%s.txt", mode));
+        Files.createDirectories(options.outputDir);
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(String.format("# Offline conflict %s of %s - Generated by RemakeFactory", mode, options.dump.getFileName()));
+            writer.newLine(); writer.write("# Timestamp: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+            writer.newLine(); writer.write("# " + summary);
+            for (String line : statsLines(nodes)) {
+                writer.newLine(); writer.write("# " + line);
+            }
+            for (String line : headerLines) {
+                writer.newLine(); writer.write(line);
+            }
+            writer.newLine();
+            for (String line : lines) {
+                writer.write(line); writer.newLine();
+            }
+        }
+        return filePath;
+    }
+
+    /**
+     * 报告中的统计：一行计数器，一行各阶段耗时 (与 conflict.verbose 在聊天中显示的内容相同)。
+     */
+    private List<String> statsLines(long nodes) {
+        StringJoiner counters = new StringJoiner(", ", "Counters: ", "");
+        counters.add("nodes " + nodes);
+        for (SolverStats.Counter counter : SolverStats.Counter.values()) counters.add(counter.id() + " " + stats.get(counter));
+        StringJoiner phases = new StringJoiner(", ", "Phases: ", "");
+        for (SolverStats.Phase phase : SolverStats.Phase.values()) {
+            long nanos = stats.phaseNanos(phase);
+            if (nanos > 0) phases.add(phase.id() + " " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        }
+        phases.add("total " + TimeUnit.NANOSECONDS.toMillis(stats.elapsedNanos()) + " ms");
+        return List.of(counters.toString(), phases.toString());
+    }
+
+    /**
+     * 与游戏内相同的覆盖格式：{@code covered <= a + b}。
+     */
+    private static String formatCover(IConflictRecipe covered, List<IConflictRecipe> cover) {
+        StringJoiner joiner = new StringJoiner(" + ");
+        for (IConflictRecipe recipe : cover) joiner.add(recipe.toString());
+        return covered + " <= " + (cover.isEmpty() ? "(no inputs)" : joiner.toString());
+    }
+
+    /**
+     * 读取 JEI 书签文件中属于指定命名空间的配方ID，保持文件中的顺序 (与游戏内 /ref conflict bookmarks 的筛选相同)。
+     */
+    private static List<String> readBookmarks(Path file, String namespace) throws IOException {
+        Set<String> ids = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("R:")) continue;
+                String[] mainParts = line.substring(2).split("#", 2);
+                if (mainParts.length < 2) continue;
+                String recipeId = mainParts[1].split("#")[0];
+                if (mainParts[0].startsWith(namespace + ":") && recipeId.startsWith(namespace + ":")) ids.add(recipeId);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // =================================================================================
+    // == 命令行参数                                                                   ==
+    // =================================================================================
+
+    /** 参数错误，消息直接显示给用户。 */
+    private static final class UsageException extends Exception {
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Options {
+        String mode;
+        Path dump;
+        Path outputDir = Path.of(".");
+        String recipe;
+        List<String> recipes = List.of();
+        Path bookmarks;
+        String type;
+        String namespace = DEFAULT_NAMESPACE;
+        long timeSeconds;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean explain;
+        boolean failOnConflict;
+
+        static Options parse(String[] args) throws UsageException {
+            if (args.length < 2) throw new UsageException("Missing mode or recipe dump");
+            Options options = new Options();
+            options.mode = args[0];
+            if (!List.of("greedy", "exact", "scan").contains(options.mode)) throw new UsageException("Unknown mode: " + options.mode);
+            options.dump = Path.of(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                String option = args[i];
+                switch (option) {
+                    case "--explain" -> options.explain = true;
+                    case "--fail-on-conflict" -> options.failOnConflict = true;
+                    case "--out" -> options.outputDir = Path.of(value(args, ++i, option));
+                    case "--recipe" -> options.recipe = value(args, ++i, option);
+                    case "--recipes" -> options.recipes = Arrays.stream(value(args, ++i, option).split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+                    case "--bookmarks" -> options.bookmarks = Path.of(value(args, ++i, option));
+                    case "--type" -> options.type = value(args, ++i, option);
+                    case "--namespace" -> options.namespace = value(args, ++i, option);
+                    case "--time" -> options.timeSeconds = number(value(args, ++i, option), option, 0);
+                    case "--threads" -> options.threads = (int) number(value(args, ++i, option), option, 1);
+                    default -> throw new UsageException("Unknown option: " + option);
+                }
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int i, String option) throws UsageException {
+            if (i >= args.length) throw new UsageException(option + " needs a value");
+            return args[i];
+        }
+
+        private static long number(String value, String option, long min) throws UsageException {
+            try {
+                long number = Long.parseLong(value);
+                if (number >= min) return number;
+            } catch (NumberFormatException ignored) {}
+            throw new UsageException(option + " needs a whole number of at least " + min + ", got " + value);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link CandidateReducer} 只删除不可能出现在最优解中的候选 (或可以互相替代的候选)，
+ * 并且 {@link ReductionReport} 如实记录每一类被删除的候选。
+ */
+class CandidateReducerTest {
+
+    @Test
+    void reductionKeepsTheOptimumSize() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 60, 40, 3, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+                List<IConflictRecipe> candidates = candidatesAfter(mandatory, scope, 14);
+
+                CandidateReducer.Reduced reduced = CandidateReducer.reduce(mandatory, candidates, scope);
+
+                assertEquals(largestSafeSize(mandatory, candidates, scope),
+                        largestSafeSize(mandatory, reduced.candidates(), scope), describe(seed, density));
+            }
+        }
+    }
+
+    @Test
+    void reportAccountsForEveryRemovedCandidate() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 400, 200, 4, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+                List<IConflictRecipe> candidates = candidatesAfter(mandatory, scope, 200);
+
+                CandidateReducer.Reduced reduced = CandidateReducer.reduce(mandatory, candidates, scope);
+                ReductionReport report = reduced.report();
+                List<IConflictRecipe> kept = reduced.candidates();
+                String message = describe(seed, density);
+
+                assertEquals(candidates.size(), report.candidates(), message);
+                assertEquals(kept.size(), report.remaining(), message);
+
+                InputMultiset mandatoryInputs = mandatory.getInputs();
+                Set<InputMultiset> keptInputs = new HashSet<>();
+                for (IConflictRecipe candidate : kept) {
+                    assertFalse(candidate.getInputs().isSubsetOf(mandatoryInputs) || mandatoryInputs.isSubsetOf(candidate.getInputs()), message);
+                    assertTrue(keptInputs.add(candidate.getInputs()), message);
+                    assertTrue(isSafe(Set.of(mandatory, candidate), scope), message);
+                }
+
+                int subsetOfMandatory = 0;
+                int duplicates = 0;
+                int unsafe = 0;
+                Set<IConflictRecipe> keptSet = new HashSet<>(kept);
+                Set<InputMultiset> seenInputs = new HashSet<>();
+                for (IConflictRecipe candidate : candidates) {
+                    InputMultiset in = candidate.getInputs();
+                    boolean related = in.isSubsetOf(mandatoryInputs) || mandatoryInputs.isSubsetOf(in);
+                    boolean duplicate = !related && !seenInputs.add(in);
+                    if (keptSet.contains(candidate)) continue;
+                    if (related) subsetOfMandatory++;
+                    else if (duplicate) duplicates++;
+                    else {
+                        assertFalse(isSafe(Set.of(mandatory, candidate), scope), message);
+                        unsafe++;
+                    }
+                }
+                assertEquals(new ReductionReport(candidates.size(), subsetOfMandatory, unsafe, duplicates), report, message);
+            }
+        }
+    }
+
+    /**
+     * 相同输入的候选只保留一个代表；而范围中的另一个就是它的外部覆盖，因此代表随后也被判为不安全。
+     */
+    @Test
+    void identicalInputsAreMergedAndCoverEachOther() {
+        IConflictRecipe mandatory = recipe("reducer:mandatory", "item:reducer:a", 1);
+        IConflictRecipe first = recipe("reducer:first", "item:reducer:b", 1, "item:reducer:c", 1);
+        IConflictRecipe second = recipe("reducer:second", "item:reducer:b", 1, "item:reducer:c", 1);
+        IConflictRecipe superset = recipe("reducer:superset", "item:reducer:a", 2);
+        List<IConflictRecipe> scope = List.of(mandatory, first, second, superset);
+
+        CandidateReducer.Reduced reduced = CandidateReducer.reduce(mandatory, List.of(first, second, superset), scope);
+
+        assertEquals(List.of(), reduced.candidates(), "reduced candidates");
+        assertEquals(new ReductionReport(3, 1, 1, 1), reduced.report(), "report");
+
+        // 另一个不在范围中时代表可以保留
+        reduced = CandidateReducer.reduce(mandatory, List.of(first, second, superset), List.of(mandatory, first, superset));
+        assertEquals(List.of(first), reduced.candidates(), "reduced candidates without the twin in scope");
+        assertEquals(new ReductionReport(3, 1, 0, 1), reduced.report(), "report without the twin in scope");
+    }
+}
@@ -0,0 +1,79 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在 {@link SyntheticRecipes} 生成的、固定种子的配方集合上交叉验证 {@link ConflictDetector} 的各个求解器：
+ * <ul>
+ *     <li>窗口并行贪心与顺序贪心得到完全相同的集合；</li>
+ *     <li>小规模时分支定界的最优解大小与穷举相同；</li>
+ *     <li>并行分支定界与顺序分支定界的最优解大小相同。</li>
+ * </ul>
+ * 每个种子都覆盖原料稀疏 (density 低) 和大量共享原料 (density 高) 两种情况。
+ */
+class ConflictDetectorTest {
+
+    // 穷举验证的候选数量 (2^14 个子集)
+    private static final int BRUTE_FORCE_CANDIDATES = 14;
+    // 并行与顺序分支定界比较时的候选数量
+    private static final int EXACT_CANDIDATES = 40;
+
+    @Test
+    void windowedGreedyMatchesSequentialGreedy() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 2000, 500, 6, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+
+                Set<IConflictRecipe> sequential = ConflictDetector.findLargestConflictFreeSet_greedy(mandatory, scope, scope);
+                Set<IConflictRecipe> windowed = ConflictDetector.findLargestConflictFreeSet_greedy_multiThreaded(mandatory, scope, scope);
+
+                assertEquals(sequential, windowed, describe(seed, density));
+                assertTrue(ConflictDetector.isSetSafelyCoexistent(windowed, scope), describe(seed, density));
+            }
+        }
+    }
+
+    @Test
+    void branchAndBoundMatchesBruteForce() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                // 较小的词汇表使少量配方之间也有足够多的子集关系和组合覆盖
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 60, 40, 3, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+                List<IConflictRecipe> candidates = candidatesAfter(mandatory, scope, BRUTE_FORCE_CANDIDATES);
+
+                SolveResult exact = ConflictDetector.findLargestConflictFreeSubset(mandatory, candidates, scope, SolveBudget.unlimited());
+
+                assertTrue(exact.isOptimal(), describe(seed, density));
+                assertTrue(exact.recipes().contains(mandatory), describe(seed, density));
+                assertTrue(ConflictDetector.isSetSafelyCoexistent(exact.recipes(), scope), describe(seed, density));
+                assertEquals(largestSafeSize(mandatory, candidates, scope), exact.recipes().size(), describe(seed, density));
+            }
+        }
+    }
+
+    @Test
+    void parallelBranchAndBoundMatchesSequential() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 400, 200, 4, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+                List<IConflictRecipe> candidates = candidatesAfter(mandatory, scope, EXACT_CANDIDATES);
+
+                SolveResult sequential = ConflictDetector.findLargestConflictFreeSubset(mandatory, candidates, scope, SolveBudget.unlimited());
+                SolveResult parallel = ConflictDetector.findLargestConflictFreeSubset_multiThreaded(mandatory, candidates, scope, SolveBudget.unlimited());
+
+                assertTrue(sequential.isOptimal(), describe(seed, density));
+                assertTrue(parallel.isOptimal(), describe(seed, density));
+                assertEquals(sequential.recipes().size(), parallel.recipes().size(), describe(seed, density));
+                assertTrue(ConflictDetector.isSetSafelyCoexistent(parallel.recipes(), scope), describe(seed, density));
+            }
+        }
+    }
+}
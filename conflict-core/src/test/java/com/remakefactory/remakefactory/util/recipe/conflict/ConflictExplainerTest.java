@@ -0,0 +1,92 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ConflictExplainer} 为每个被排除的候选给出的证据必须真实 (覆盖成立、成员来自正确的集合) 且删除极小，
+ * 可以安全加入的候选不应得到证据。
+ */
+class ConflictExplainerTest {
+
+    @Test
+    void witnessesAreValidAndDeletionMinimal() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 800, 300, 5, density);
+                IConflictRecipe mandatory = firstUncovered(scope);
+                Set<IConflictRecipe> safeSet = ConflictDetector.findLargestConflictFreeSet_greedy(mandatory, scope, scope);
+                UnionState state = new UnionState(ScopeIndex.of(scope));
+                for (IConflictRecipe member : safeSet) state.push(member);
+                ConflictExplainer explainer = new ConflictExplainer(state);
+                String message = describe(seed, density);
+
+                int explained = 0;
+                for (IConflictRecipe candidate : scope) {
+                    if (safeSet.contains(candidate)) continue;
+                    ConflictWitness witness = explainer.explain(candidate);
+                    assertEquals(state.canAdd(candidate), witness == null, message + ", " + candidate);
+                    if (witness == null) continue;
+                    explained++;
+                    assertWitness(witness, candidate, safeSet, scope, message);
+                }
+                // 贪心结果是极大的，其余配方都无法加入
+                assertEquals(scope.size() - safeSet.size(), explained, message);
+            }
+        }
+    }
+
+    @Test
+    void explainsEachKindOfConflict() {
+        IConflictRecipe plate = recipe("explain:plate", "item:explain:ingot", 1);
+        IConflictRecipe gear = recipe("explain:gear", "item:explain:ingot", 4, "item:explain:water", 100);
+        IConflictRecipe rod = recipe("explain:rod", "item:explain:dust", 1, "item:explain:water", 100);
+        IConflictRecipe external = recipe("explain:external", "item:explain:dust", 1, "item:explain:ingot", 1);
+        List<IConflictRecipe> scope = List.of(plate, gear, rod, external);
+
+        // 只含 plate 的集合是安全的 (它不覆盖任何其他配方)
+        UnionState state = new UnionState(ScopeIndex.of(scope));
+        state.push(plate);
+        ConflictExplainer explainer = new ConflictExplainer(state);
+
+        // gear 的输入包含 plate 的输入：plate 被 gear 覆盖
+        ConflictWitness gearWitness = explainer.explain(gear);
+        assertNotNull(gearWitness, "gear");
+        assertEquals(plate, gearWitness.covered(), "gear covered");
+        assertEquals(List.of(gear), gearWitness.cover(), "gear cover");
+
+        // rod 与 plate 一起覆盖外部配方
+        ConflictWitness rodWitness = explainer.explain(rod);
+        assertNotNull(rodWitness, "rod");
+        assertEquals(external, rodWitness.covered(), "rod covered");
+        assertEquals(Set.of(rod, plate), new HashSet<>(rodWitness.cover()), "rod cover");
+        assertWitness(rodWitness, rod, Set.of(plate), scope, "rod");
+    }
+
+    /**
+     * 证据的覆盖成立，各成员来自正确的集合，并且去掉任何一个成员后覆盖都不再成立。
+     */
+    private static void assertWitness(ConflictWitness witness, IConflictRecipe candidate, Set<IConflictRecipe> safeSet,
+                                      Collection<IConflictRecipe> scope, String message) {
+        assertEquals(candidate, witness.rejected(), message);
+        List<IConflictRecipe> cover = witness.cover();
+        assertFalse(cover.contains(witness.covered()), message);
+        assertTrue(scope.contains(witness.covered()), message);
+        if (witness.isRejectedCovered()) {
+            assertTrue(safeSet.containsAll(cover), message);
+        } else {
+            assertTrue(cover.contains(candidate), message);
+            for (IConflictRecipe recipe : cover) assertTrue(recipe.equals(candidate) || safeSet.contains(recipe), message);
+        }
+        assertTrue(covers(cover, witness.covered()), message);
+        for (int i = 0; i < cover.size(); i++) {
+            List<IConflictRecipe> smaller = new ArrayList<>(cover);
+            smaller.remove(i);
+            assertFalse(covers(smaller, witness.covered()), message + ": cover is not deletion-minimal");
+        }
+    }
+}
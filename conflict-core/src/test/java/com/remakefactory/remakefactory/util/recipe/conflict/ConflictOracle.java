@@ -0,0 +1,97 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.*;
+
+/**
+ * 测试用的朴素参照实现：不依赖被测的增量结构，只用全量检查和逐个累加，供各个测试交叉验证。
+ */
+final class ConflictOracle {
+
+    /** 各测试共用的种子，以及原料稀疏 (density 低) 和大量共享原料 (density 高) 两种语料。 */
+    static final long[] SEEDS = {1, 2, 3, 5, 8, 13, 21, 34, 55, 89};
+    static final double[] DENSITIES = {0.2, 0.6};
+
+    private ConflictOracle() {}
+
+    /**
+     * 范围中第一个不被其他配方覆盖的配方 (被覆盖的必须配方使求解立即结束，测试没有意义)。
+     */
+    static IConflictRecipe firstUncovered(List<IConflictRecipe> scope) {
+        for (IConflictRecipe recipe : scope) {
+            boolean covered = false;
+            for (IConflictRecipe other : scope) {
+                if (!other.equals(recipe) && other.getInputs().isSubsetOf(recipe.getInputs())) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) return recipe;
+        }
+        throw new IllegalStateException("Every recipe in the corpus is covered by another recipe");
+    }
+
+    /**
+     * 范围中除必须配方以外的前 count 个配方。
+     */
+    static List<IConflictRecipe> candidatesAfter(IConflictRecipe mandatory, List<IConflictRecipe> scope, int count) {
+        List<IConflictRecipe> candidates = new ArrayList<>(count);
+        for (IConflictRecipe recipe : scope) {
+            if (candidates.size() == count) break;
+            if (!recipe.equals(mandatory)) candidates.add(recipe);
+        }
+        return candidates;
+    }
+
+    /**
+     * 集合是否安全。与 {@link ConflictDetector#isSetSafelyCoexistent(Set, Collection)} 相同，
+     * 但单个配方也检查它是否覆盖了范围中的其他配方 (全量检查对单个配方直接返回安全)。
+     */
+    static boolean isSafe(Set<IConflictRecipe> set, Collection<IConflictRecipe> scope) {
+        if (set.size() != 1) return ConflictDetector.isSetSafelyCoexistent(set, scope);
+        IConflictRecipe only = set.iterator().next();
+        for (IConflictRecipe other : scope) {
+            if (!other.equals(only) && other.getInputs().isSubsetOf(only.getInputs())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 枚举候选的全部子集，返回与必须配方一起安全共存的最大集合的大小 (含必须配方)。
+     */
+    static int largestSafeSize(IConflictRecipe mandatory, List<IConflictRecipe> candidates, Collection<IConflictRecipe> scope) {
+        int best = 1;
+        for (int mask = 1; mask < (1 << candidates.size()); mask++) {
+            int size = Integer.bitCount(mask) + 1;
+            if (size <= best) continue;
+            Set<IConflictRecipe> set = new HashSet<>();
+            set.add(mandatory);
+            for (int i = 0; i < candidates.size(); i++) {
+                if ((mask & (1 << i)) != 0) set.add(candidates.get(i));
+            }
+            if (ConflictDetector.isSetSafelyCoexistent(set, scope)) best = size;
+        }
+        return best;
+    }
+
+    /**
+     * {@code cover} 中配方的供给之并是否满足 {@code covered} 的需求。
+     */
+    static boolean covers(Collection<IConflictRecipe> cover, IConflictRecipe covered) {
+        long[] dense = new long[IngredientInterner.size()];
+        for (IConflictRecipe recipe : cover) recipe.getInputs().accumulateInto(dense, 1);
+        return covered.getInputs().isCoveredBy(dense, 0);
+    }
+
+    /**
+     * 手工构造的配方，原料按 键, 数量, 键, 数量 ... 给出。
+     */
+    static PlainConflictRecipe recipe(String id, Object... keyedCounts) {
+        InputMultiset.Builder inputs = new InputMultiset.Builder();
+        for (int i = 0; i < keyedCounts.length; i += 2) inputs.add((String) keyedCounts[i], ((Number) keyedCounts[i + 1]).longValue());
+        return new PlainConflictRecipe(id, inputs.build());
+    }
+
+    static String describe(long seed, double density) {
+        return "seed=" + seed + ", density=" + density;
+    }
+}
@@ -0,0 +1,60 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 随机的加入/移除序列之后，{@link ConflictSession} 的增量结果与全量检查以及从成员列表重建的会话一致。
+ */
+class ConflictSessionTest {
+
+    private static final int STEPS = 600;
+
+    @Test
+    void incrementalEditsMatchFullChecks() {
+        for (long seed : SEEDS) {
+            for (double density : DENSITIES) {
+                List<IConflictRecipe> scope = SyntheticRecipes.generate(seed, 500, 200, 4, density);
+                ScopeIndex scopeIndex = ScopeIndex.of(scope);
+                ConflictSession session = new ConflictSession(scopeIndex);
+                SplittableRandom random = new SplittableRandom(seed);
+                String message = describe(seed, density);
+
+                for (int step = 0; step < STEPS; step++) {
+                    IConflictRecipe recipe = scope.get(random.nextInt(scope.size()));
+                    if (session.contains(recipe) && random.nextInt(3) == 0) {
+                        assertTrue(session.remove(recipe), message);
+                        assertFalse(session.contains(recipe), message);
+                        assertFalse(session.remove(recipe), message);
+                        continue;
+                    }
+                    Set<IConflictRecipe> withRecipe = new HashSet<>(session.members());
+                    withRecipe.add(recipe);
+                    boolean safe = isSafe(withRecipe, scope);
+                    int sizeBefore = session.size();
+
+                    ConflictWitness checked = session.check(recipe);
+                    assertEquals(safe, checked == null, message + ", step " + step);
+                    assertEquals(sizeBefore, session.size(), message);
+
+                    boolean wasMember = session.contains(recipe);
+                    ConflictWitness added = session.add(recipe);
+                    assertEquals(safe, added == null, message + ", step " + step);
+                    assertEquals(safe, session.contains(recipe), message);
+                    assertEquals(safe && !wasMember ? sizeBefore + 1 : sizeBefore, session.size(), message);
+                    if (added != null) assertTrue(covers(added.cover(), added.covered()), message);
+                }
+                assertTrue(isSafe(session.members(), scope), message);
+
+                // 从成员列表重建：每个成员都能重新加入，得到相同的集合
+                ConflictSession rebuilt = new ConflictSession(scopeIndex);
+                for (IConflictRecipe member : session.members()) assertNull(rebuilt.add(member), message);
+                assertEquals(session.members(), rebuilt.members(), message);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RecipeDump} 写出再读回后，配方类型的顺序、配方ID、需求、供给 (标签展开) 和书签输出都保持不变。
+ */
+class RecipeDumpTest {
+
+    @Test
+    void writeThenReadRoundTrips() throws IOException {
+        Map<String, List<PlainConflictRecipe>> written = new LinkedHashMap<>();
+        for (long seed : SEEDS) {
+            List<PlainConflictRecipe> recipes = new ArrayList<>();
+            for (IConflictRecipe recipe : SyntheticRecipes.generate(seed, 200, 100, 5, 0.4)) {
+                PlainConflictRecipe plain = (PlainConflictRecipe) recipe;
+                // 每隔几个配方记录一个书签输出，覆盖有输出和没有输出两种行
+                String output = plain.id().hashCode() % 3 == 0 ? "item_stack&synthetic:output_" + plain.id().length() : null;
+                recipes.add(new PlainConflictRecipe(plain.id(), plain.getInputs(), output));
+            }
+            written.put("synthetic:type_" + seed, recipes);
+        }
+        written.put("dumptest:tagged", taggedRecipes());
+        written.put("dumptest:empty_inputs", List.of(new PlainConflictRecipe("dumptest:no_inputs", InputMultiset.EMPTY, "item_stack&dumptest:free")));
+
+        StringWriter out = new StringWriter();
+        RecipeDump.writeHeader(out);
+        for (Map.Entry<String, List<PlainConflictRecipe>> type : written.entrySet()) {
+            RecipeDump.writeType(out, type.getKey(), type.getValue(),
+                    recipe -> ((PlainConflictRecipe) recipe).id(),
+                    recipe -> ((PlainConflictRecipe) recipe).output().orElse(null));
+        }
+        Map<String, List<PlainConflictRecipe>> read = RecipeDump.read(new BufferedReader(new StringReader(out.toString())));
+
+        assertEquals(new ArrayList<>(written.keySet()), new ArrayList<>(read.keySet()), "recipe types");
+        for (String type : written.keySet()) {
+            List<PlainConflictRecipe> expected = written.get(type);
+            List<PlainConflictRecipe> actual = read.get(type);
+            assertEquals(expected.size(), actual.size(), type);
+            for (int i = 0; i < expected.size(); i++) {
+                PlainConflictRecipe before = expected.get(i);
+                PlainConflictRecipe after = actual.get(i);
+                String message = type + " / " + before.id();
+                assertEquals(before.id(), after.id(), message);
+                assertEquals(before.getInputs(), after.getInputs(), message + " demand");
+                assertEquals(before.getInputs().supply(), after.getInputs().supply(), message + " supply");
+                assertEquals(before.output(), after.output(), message + " output");
+            }
+        }
+    }
+
+    @Test
+    void rejectsRecipesBeforeTheFirstType() {
+        String dump = RecipeDump.HEADER + "\ndumptest:orphan\titem:dumptest:a*1\n";
+        assertThrows(IOException.class, () -> RecipeDump.read(new BufferedReader(new StringReader(dump))), "recipe without a type");
+    }
+
+    /**
+     * 带标签供给的配方 (供给与需求不同，写出时多一列)。
+     */
+    private static List<PlainConflictRecipe> taggedRecipes() {
+        String tag = "tag:dumptest:ingots";
+        String item = "item:dumptest:iron_ingot";
+        BitSet members = new BitSet();
+        members.set(IngredientInterner.intern(item));
+        List<IConflictRecipe> recipes = List.of(
+                recipe("dumptest:by_tag", tag, 1),
+                recipe("dumptest:by_item", item, 3, "fluid:dumptest:water", 1000));
+        int tagId = IngredientInterner.intern(tag);
+        TagExpansion expansion = TagExpansion.of(recipes.stream().map(IConflictRecipe::getInputs).toList(),
+                id -> id == tagId ? members.toLongArray() : new long[0]);
+
+        List<PlainConflictRecipe> tagged = new ArrayList<>();
+        for (IConflictRecipe recipe : recipes) {
+            InputMultiset inputs = expansion.expand(recipe.getInputs());
+            assertNotSame(inputs, inputs.supply(), "test data must carry a supply");
+            tagged.add(new PlainConflictRecipe(((PlainConflictRecipe) recipe).id(), inputs));
+        }
+        return tagged;
+    }
+}
@@ -0,0 +1,87 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.remakefactory.remakefactory.util.recipe.conflict.ConflictOracle.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TagExpansion} 的供给规则：物品供给包含它的标签，标签供给成员集合包含它的标签，单成员标签供给该物品；
+ * 只展开到范围内被需求的标签，需求本身保持不变。
+ */
+class TagExpansionTest {
+
+    private static final String IRON = "item:tagtest:iron";
+    private static final String GOLD = "item:tagtest:gold";
+    private static final String COPPER = "item:tagtest:copper";
+    private static final String METALS = "tag:tagtest:metals";     // iron, gold
+    private static final String IRON_TAG = "tag:tagtest:iron";     // iron
+    private static final String UNUSED = "tag:tagtest:unused";     // iron, copper (没有配方需求它)
+
+    private static final Map<Integer, long[]> MEMBERS = Map.of(
+            IngredientInterner.intern(METALS), members(IRON, GOLD),
+            IngredientInterner.intern(IRON_TAG), members(IRON),
+            IngredientInterner.intern(UNUSED), members(IRON, COPPER));
+
+    private final IConflictRecipe anyMetal = recipe("tagtest:any_metal", METALS, 2);
+    private final IConflictRecipe ironOnly = recipe("tagtest:iron_only", IRON, 2);
+    private final IConflictRecipe ironTag = recipe("tagtest:iron_tag", IRON_TAG, 2);
+    private final IConflictRecipe goldAndCopper = recipe("tagtest:gold_copper", GOLD, 2, COPPER, 1);
+    private final IConflictRecipe copperOnly = recipe("tagtest:copper_only", COPPER, 1);
+
+    private final TagExpansion expansion = TagExpansion.of(
+            List.of(anyMetal.getInputs(), ironOnly.getInputs(), ironTag.getInputs(), goldAndCopper.getInputs(), copperOnly.getInputs()),
+            id -> MEMBERS.getOrDefault(id, new long[0]));
+
+    @Test
+    void itemSuppliesEveryDemandedTagContainingIt() {
+        InputMultiset iron = expansion.expand(ironOnly.getInputs());
+        assertTrue(anyMetal.getInputs().isSubsetOf(iron), "iron satisfies #metals");
+        assertTrue(ironTag.getInputs().isSubsetOf(iron), "iron satisfies #iron");
+        assertEquals(2, iron.supply().countOf(IngredientInterner.intern(METALS)), "supplied amount follows the item amount");
+        assertTrue(anyMetal.getInputs().isSubsetOf(expansion.expand(goldAndCopper.getInputs())), "gold satisfies #metals");
+    }
+
+    @Test
+    void tagSuppliesTagsContainingAllItsMembersAndItsSingleMember() {
+        InputMultiset tag = expansion.expand(ironTag.getInputs());
+        assertTrue(anyMetal.getInputs().isSubsetOf(tag), "#iron satisfies #metals");
+        assertTrue(ironOnly.getInputs().isSubsetOf(tag), "#iron has a single member, so it satisfies iron");
+
+        InputMultiset metals = expansion.expand(anyMetal.getInputs());
+        assertFalse(ironTag.getInputs().isSubsetOf(metals), "#metals may be gold, so it does not satisfy #iron");
+        assertFalse(ironOnly.getInputs().isSubsetOf(metals), "#metals may be gold, so it does not satisfy iron");
+    }
+
+    @Test
+    void onlyDemandedTagsAreSuppliedAndDemandIsUnchanged() {
+        InputMultiset iron = expansion.expand(ironOnly.getInputs());
+        assertFalse(iron.supply().contains(IngredientInterner.intern(UNUSED)), "tags nobody demands are not supplied");
+        assertEquals(ironOnly.getInputs(), iron, "demand is unchanged");
+        assertNotSame(iron, iron.supply(), "supply is attached");
+
+        // 不属于任何被需求标签的物品原样返回
+        assertSame(copperOnly.getInputs(), expansion.expand(copperOnly.getInputs()), "copper is left alone");
+        assertSame(TagExpansion.NONE, TagExpansion.of(List.of(ironOnly.getInputs(), copperOnly.getInputs()), id -> new long[0]), "no tags demanded");
+    }
+
+    @Test
+    void expandedRecipesConflictThroughTags() {
+        List<IConflictRecipe> scope = new ArrayList<>();
+        for (IConflictRecipe recipe : List.of(anyMetal, ironOnly, goldAndCopper)) {
+            scope.add(new PlainConflictRecipe(((PlainConflictRecipe) recipe).id(), expansion.expand(recipe.getInputs())));
+        }
+        // 放入铁时，需要任意金属的配方也能被匹配
+        assertFalse(ConflictDetector.isSetSafelyCoexistent(Set.of(scope.get(0), scope.get(1)), scope), "#metals and iron");
+        // 没有标签展开时两者互不相关
+        assertTrue(ConflictDetector.isSetSafelyCoexistent(Set.of(anyMetal, ironOnly), List.of(anyMetal, ironOnly)), "without expansion");
+    }
+
+    private static long[] members(String... items) {
+        BitSet bits = new BitSet();
+        for (String item : items) bits.set(IngredientInterner.intern(item));
+        return bits.toLongArray();
+    }
+}
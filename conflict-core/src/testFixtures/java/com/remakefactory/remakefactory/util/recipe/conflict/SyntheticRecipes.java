@@ -0,0 +1,51 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 可复现的合成配方集合，用于在没有真实整合包时测量 (基准测试) 和验证 (单元测试) 冲突求解器。
+ * <p>
+ * 每个配方有 1 到 {@code maxIngredients} 种原料。每种原料以 {@code density} 的概率取自一个较小的"常用原料池"
+ * (词汇表的前 {@link #HOT_FRACTION})，否则从整个词汇表中均匀抽取：density 越高，配方之间共享的原料越多，
+ * 子集关系和组合覆盖也越多，连通分量越大。数量大多为 1，偶尔较大，与 GT 配方的分布大致相似。
+ * 相同的参数和种子总是生成相同的配方。
+ */
+public final class SyntheticRecipes {
+
+    /** 常用原料池占词汇表的比例。 */
+    public static final double HOT_FRACTION = 0.05;
+
+    private SyntheticRecipes() {}
+
+    /**
+     * @param seed           随机种子。
+     * @param recipes        配方数量。
+     * @param vocabulary     不同原料的数量。
+     * @param maxIngredients 每个配方最多的原料种类。
+     * @param density        原料取自常用原料池的概率 (0 到 1)。
+     */
+    public static List<IConflictRecipe> generate(long seed, int recipes, int vocabulary, int maxIngredients, double density) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int hot = Math.max(1, (int) (vocabulary * HOT_FRACTION));
+        List<IConflictRecipe> result = new ArrayList<>(recipes);
+        for (int i = 0; i < recipes; i++) {
+            InputMultiset.Builder inputs = new InputMultiset.Builder();
+            int ingredients = 1 + random.nextInt(maxIngredients);
+            for (int j = 0; j < ingredients; j++) {
+                int ingredient = random.nextDouble() < density ? random.nextInt(hot) : random.nextInt(vocabulary);
+                inputs.add("item:synthetic:" + ingredient, amount(random));
+            }
+            result.add(new PlainConflictRecipe("synthetic:recipe_" + i, inputs.build()));
+        }
+        return result;
+    }
+
+    private static long amount(SplittableRandom random) {
+        double roll = random.nextDouble();
+        if (roll < 0.6) return 1;
+        if (roll < 0.9) return 1 + random.nextInt(4);
+        return 1 + random.nextInt(64);
+    }
+}
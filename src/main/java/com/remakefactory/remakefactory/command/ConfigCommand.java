@@ -30,8 +30,17 @@ public final class ConfigCommand {
                 .then(buildCommandForBoolean("filter", Config.COMMON.recipeHijacker.gtceu.filter))
                 .then(buildCommandForInt("scalingMultiplier", Config.COMMON.recipeHijacker.gtceu.scalingMultiplier, 1, 100000));
 
+        LiteralArgumentBuilder<CommandSourceStack> conflictCmd = Commands.literal("conflict")
+                .then(buildCommandForBoolean("tagMatching", Config.COMMON.conflict.tagMatching))
+                .then(buildCommandForBoolean("verbose", Config.COMMON.conflict.verbose))
+                .then(buildCommandForInt("solverThreads", Config.COMMON.conflict.solverThreads, 0, 256))
+                .then(buildCommandForInt("jobWorkers", Config.COMMON.conflict.jobWorkers, 1, 16))
+                .then(buildCommandForInt("maxJobsPerPlayer", Config.COMMON.conflict.maxJobsPerPlayer, 1, 16))
+                .then(buildCommandForInt("maxQueuedJobs", Config.COMMON.conflict.maxQueuedJobs, 1, 1000));
+
         hijackerCmd.then(gtceuCmd);
         cmd.then(hijackerCmd);
+        cmd.then(conflictCmd);
         return cmd;
     }
 
@@ -9,16 +9,28 @@ import com.gregtechceu.gtceu.api.recipe.content.Content;
 import com.gregtechceu.gtceu.api.recipe.ingredient.FluidIngredient;
 import com.gregtechceu.gtceu.api.recipe.ingredient.SizedIngredient;
 import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.remakefactory.remakefactory.config.Config;
 import com.remakefactory.remakefactory.util.recipe.conflict.ConflictDetector;
-import com.remakefactory.remakefactory.util.recipe.conflict.GTCEuConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.ConflictWitness;
 import com.remakefactory.remakefactory.util.recipe.conflict.IConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.PortfolioResult;
+import com.remakefactory.remakefactory.util.recipe.conflict.PreparedRecipeDiskCache;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeTypeIndexCache;
+import com.remakefactory.remakefactory.util.recipe.conflict.ReductionReport;
+import com.remakefactory.remakefactory.util.recipe.conflict.ScopeIndex;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveBudget;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveResult;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverStats;
+import com.remakefactory.remakefactory.util.recipe.conflict.TagMatching;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.commands.CommandSourceStack;
@@ -44,7 +56,6 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @SuppressWarnings("removal")
@@ -53,7 +64,7 @@ public final class ConflictCommand {
     private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
 
     // --- 本地化的异常类型 ---
-    private static final SimpleCommandExceptionType ERROR_NOT_PLAYER = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.not_player"));
+    static final SimpleCommandExceptionType ERROR_NOT_PLAYER = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.not_player"));
     private static final SimpleCommandExceptionType ERROR_RECIPE_NOT_FOUND = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.recipe_not_found"));
     private static final SimpleCommandExceptionType ERROR_NOT_GT_RECIPE = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.not_gt_recipe"));
     private static final SimpleCommandExceptionType ERROR_NO_RECIPES_GIVEN = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.no_recipes_given"));
@@ -61,9 +72,13 @@ public final class ConflictCommand {
     private static final SimpleCommandExceptionType ERROR_CANNOT_CREATE_DIR = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_create_dir"));
     private static final SimpleCommandExceptionType ERROR_CANNOT_WRITE_FILE = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_write_file"));
     private static final SimpleCommandExceptionType ERROR_CANNOT_READ_FILE = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_read_file"));
+    private static final SimpleCommandExceptionType ERROR_CANNOT_CLEAR_CACHE = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_clear_cache"));
 
     private static final String DEFAULT_NAMESPACE = "gtceu"; // 定义默认命名空间
     private static final boolean DEFAULT_USE_MULTITHREADING = false; // 定义默认线程使用
+    private static final int DEFAULT_TIME_LIMIT_SECONDS = 0; // 定义默认时间限制 (0 = 不限时)
+    private static final int DEFAULT_LOCAL_SEARCH_SECONDS = 10; // 单配方模式的局部搜索必须限时，未指定时使用此值
+    private static final int MAX_EXPLAINED_REJECTIONS = 1000; // 写入书签文件的排除理由上限 (单配方模式下被排除的配方可能有数千个)
 
     private ConflictCommand() {}
 
@@ -83,7 +98,8 @@ public final class ConflictCommand {
                                 context,
                                 StringArgumentType.getString(context, "bookmarks_file"),
                                 DEFAULT_NAMESPACE,
-                                DEFAULT_USE_MULTITHREADING
+                                DEFAULT_USE_MULTITHREADING,
+                                DEFAULT_TIME_LIMIT_SECONDS
                         ))
                         .then(Commands.argument("namespace", StringArgumentType.word())
                                 .suggests((ctx, builder) -> { builder.suggest("gtceu"); return builder.buildFuture(); })
@@ -92,61 +108,107 @@ public final class ConflictCommand {
                                         context,
                                         StringArgumentType.getString(context, "bookmarks_file"),
                                         StringArgumentType.getString(context, "namespace"),
-                                        DEFAULT_USE_MULTITHREADING
+                                        DEFAULT_USE_MULTITHREADING,
+                                        DEFAULT_TIME_LIMIT_SECONDS
                                 ))
                                 .then(Commands.argument("use_multithreading", BoolArgumentType.bool())
-                                        // 版本3: 提供所有参数
+                                        // 版本3: 提供文件名、命名空间和线程选项 (不限时)
                                         .executes(context -> runBookmarkOptimizer(
                                                 context,
                                                 StringArgumentType.getString(context, "bookmarks_file"),
                                                 StringArgumentType.getString(context, "namespace"),
-                                                BoolArgumentType.getBool(context, "use_multithreading")
+                                                BoolArgumentType.getBool(context, "use_multithreading"),
+                                                DEFAULT_TIME_LIMIT_SECONDS
                                         ))
+                                        .then(Commands.argument("time_limit", IntegerArgumentType.integer(1))
+                                                // 版本4: 提供所有参数，时间限制单位为秒
+                                                .executes(context -> runBookmarkOptimizer(
+                                                        context,
+                                                        StringArgumentType.getString(context, "bookmarks_file"),
+                                                        StringArgumentType.getString(context, "namespace"),
+                                                        BoolArgumentType.getBool(context, "use_multithreading"),
+                                                        IntegerArgumentType.getInteger(context, "time_limit")
+                                                ))
+                                        )
                                 )
                         )
                 )
         );
 
-        // --- /ref conflict test <use_multithreading> <recipe_ids...> ---
+        // --- /ref conflict test <use_multithreading> [time_limit] [explain] <recipe_ids...> ---
         cmd.then(Commands.literal("test")
                 .then(Commands.argument("use_multithreading", BoolArgumentType.bool())
-                        .then(Commands.argument("recipe_ids", StringArgumentType.greedyString())
-                                .suggests((context, builder) ->
-                                        SharedSuggestionProvider.suggest(
-                                                context.getSource().getServer().getRecipeManager().getRecipeIds().map(ResourceLocation::toString),
-                                                builder
-                                        )
+                        .then(recipeIdsArgument(context -> DEFAULT_TIME_LIMIT_SECONDS, false))
+                        .then(Commands.literal("explain")
+                                .then(recipeIdsArgument(context -> DEFAULT_TIME_LIMIT_SECONDS, true))
+                        )
+                        .then(Commands.argument("time_limit", IntegerArgumentType.integer(1))
+                                .then(recipeIdsArgument(context -> IntegerArgumentType.getInteger(context, "time_limit"), false))
+                                .then(Commands.literal("explain")
+                                        .then(recipeIdsArgument(context -> IntegerArgumentType.getInteger(context, "time_limit"), true))
                                 )
-                                .executes(ConflictCommand::runTest)
                         )
                 )
         );
 
+        // --- /ref conflict session <add|remove|check|show|clear> ---
+        cmd.then(ConflictSessions.register());
+
+        // --- /ref conflict scan ---
+        cmd.then(Commands.literal("scan")
+                .executes(context -> ConflictScan.run(context.getSource()))
+        );
+
+        // --- /ref conflict dump [recipe_type] ---
+        cmd.then(ConflictDump.register());
+
+        // --- /ref conflict status | cancel [job_id] ---
+        cmd.then(ConflictJobs.registerStatus());
+        cmd.then(ConflictJobs.registerCancel());
+
+        // --- /ref conflict cache clear ---
+        cmd.then(Commands.literal("cache")
+                .then(Commands.literal("clear")
+                        .executes(ConflictCommand::runCacheClear)
+                )
+        );
+
         return cmd;
     }
 
+    private static RequiredArgumentBuilder<CommandSourceStack, String> recipeIdsArgument(TimeLimitGetter timeLimit, boolean explain) {
+        return Commands.argument("recipe_ids", StringArgumentType.greedyString())
+                .suggests(ConflictCommand::suggestRecipeIds)
+                .executes(context -> runTest(context, timeLimit.get(context), explain));
+    }
+
+    @FunctionalInterface
+    private interface TimeLimitGetter {
+        int get(CommandContext<CommandSourceStack> context);
+    }
+
     // --- 指令执行逻辑 ---
 
-    private static int runBookmarkOptimizer(CommandContext<CommandSourceStack> context, String bookmarkFileStr, String namespace, boolean useMultiThreading) throws CommandSyntaxException {
+    private static int runBookmarkOptimizer(CommandContext<CommandSourceStack> context, String bookmarkFileStr, String namespace, boolean useMultiThreading, int timeLimitSeconds) throws CommandSyntaxException {
         CommandSourceStack source = context.getSource();
         if (!source.isPlayer()) throw ERROR_NOT_PLAYER.create();
 
         Stopwatch stopwatch = Stopwatch.createStarted();
         RecipeManager recipeManager = source.getServer().getRecipeManager();
 
-        Set<IConflictRecipe> initialSet = getRecipesFromBookmarks(recipeManager, bookmarkFileStr, namespace);
-        if (initialSet.isEmpty()) {
+        List<GTRecipe> recipes = getRecipesFromBookmarks(recipeManager, bookmarkFileStr, namespace);
+        if (recipes.isEmpty()) {
             throw new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.no_recipes_in_bookmark", namespace, bookmarkFileStr)).create();
         }
 
-        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.bookmarks.start", initialSet.size(), namespace), true);
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.bookmarks.start", recipes.size(), namespace), true);
 
-        runAnalysis(source, initialSet, useMultiThreading, stopwatch);
+        runAnalysis(source, recipes, useMultiThreading, timeLimitSeconds, false, stopwatch);
 
         return 1;
     }
 
-    private static int runTest(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+    private static int runTest(CommandContext<CommandSourceStack> context, int timeLimitSeconds, boolean explain) throws CommandSyntaxException {
         CommandSourceStack source = context.getSource();
         boolean useMultiThreading = BoolArgumentType.getBool(context, "use_multithreading");
         String recipeIdsStr = StringArgumentType.getString(context, "recipe_ids");
@@ -157,13 +219,15 @@ public final class ConflictCommand {
         }
 
         RecipeManager recipeManager = source.getServer().getRecipeManager();
-        Set<IConflictRecipe> recipeSet = new HashSet<>();
+        // 只在主线程上查找配方，解析留给任务线程；保持参数顺序，第一个是必须配方
+        Map<ResourceLocation, GTRecipe> recipesById = new LinkedHashMap<>();
         List<String> invalidIds = new ArrayList<>();
 
         for (String idStr : recipeIdArray) {
             if (idStr.trim().isEmpty()) continue;
             try {
-                recipeSet.add(getRecipeById(recipeManager, new ResourceLocation(idStr)));
+                GTRecipe recipe = getRecipeById(recipeManager, new ResourceLocation(idStr));
+                recipesById.putIfAbsent(recipe.getId(), recipe);
             } catch (Exception e) {
                 invalidIds.add(idStr);
             }
@@ -172,53 +236,208 @@ public final class ConflictCommand {
         if (!invalidIds.isEmpty()) {
             source.sendFailure(Component.translatable("commands.remakefactory.error.invalid_ids", String.join(", ", invalidIds)));
         }
-        if (recipeSet.isEmpty()) {
+        if (recipesById.isEmpty()) {
             throw ERROR_NO_VALID_RECIPES.create();
         }
 
-        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.test.start", recipeSet.size()), true);
-        runAnalysis(source, recipeSet, useMultiThreading, Stopwatch.createStarted());
+        List<GTRecipe> recipes = List.copyOf(recipesById.values());
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.test.start", recipes.size()), true);
+        runAnalysis(source, recipes, useMultiThreading, timeLimitSeconds, explain, Stopwatch.createStarted());
         return 1;
     }
 
+    private static int runCacheClear(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        int deleted;
+        try {
+            deleted = PreparedRecipeDiskCache.clear();
+        } catch (IOException e) {
+            LOGGER.error(Component.translatable("log.remakefactory.conflict.error.cache_clear_io").getString(), e);
+            throw ERROR_CANNOT_CLEAR_CACHE.create();
+        }
+        // 内存中的索引可能来自刚删除的文件，一并丢弃
+        RecipeTypeIndexCache.invalidate();
+        context.getSource().sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.cache.cleared", deleted), true);
+        return 1;
+    }
+
+    private static SolveBudget createBudget(int timeLimitSeconds, SolverStats stats) {
+        return timeLimitSeconds > 0 ? SolveBudget.of(TimeUnit.SECONDS.toMillis(timeLimitSeconds), 0, stats) : SolveBudget.unlimited(stats);
+    }
+
     // --- 通用分析与输出逻辑 ---
-    private static void runAnalysis(CommandSourceStack source, Set<IConflictRecipe> initialSet, boolean useMultiThreading, Stopwatch stopwatch) throws CommandSyntaxException {
-        Set<IConflictRecipe> finalSet;
+
+    /**
+     * 把分析提交为后台任务 (见 {@link ConflictJobs})，指令立即返回，服务器主线程不会等待求解。
+     * 主线程上只读取配方管理器 (配方本身和配方类型的索引)，输入的解析全部在任务线程上进行。
+     *
+     * @param rawRecipes 已去重的配方，第一个是必须配方。
+     */
+    private static void runAnalysis(CommandSourceStack source, List<GTRecipe> rawRecipes, boolean useMultiThreading, int timeLimitSeconds, boolean explain, Stopwatch stopwatch) throws CommandSyntaxException {
+        GTRecipe firstRecipe = rawRecipes.get(0);
+        ConflictJobs.solverPool();
         RecipeManager recipeManager = source.getServer().getRecipeManager();
+        // 配方类型的索引必须在主线程上请求 (需要读取配方管理器)，构建本身在后台进行
+        CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> preparedFuture = null;
+        // 多配方模式下已经开始构建的索引 (例如从磁盘缓存读取的)，其中的配方不再解析
+        List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> knownIndexes = new ArrayList<>();
+        // 任务规模：单配方模式下与整个配方类型比较
+        long size = rawRecipes.size();
+        if (rawRecipes.size() == 1) {
+            preparedFuture = RecipeTypeIndexCache.getAsync(recipeManager, firstRecipe.recipeType);
+            size = recipeManager.getAllRecipesFor(firstRecipe.recipeType).size();
+        } else {
+            Set<GTRecipeType> recipeTypes = new LinkedHashSet<>();
+            for (GTRecipe recipe : rawRecipes) recipeTypes.add(recipe.recipeType);
+            for (GTRecipeType recipeType : recipeTypes) {
+                CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> index = RecipeTypeIndexCache.peekAsync(recipeManager, recipeType);
+                if (index != null) knownIndexes.add(index);
+            }
+        }
+        CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> prepared = preparedFuture;
+        // 统计日志中的环境指纹，数据包列表只能在主线程上读取
+        long environment = PreparedRecipeDiskCache.environmentFingerprint();
+        Component description = Component.translatable("commands.remakefactory.conflict.job.description", firstRecipe.getId().toString(), rawRecipes.size());
+        ConflictJobs.submit(source, description, size, job -> analyze(job, rawRecipes, prepared, knownIndexes, useMultiThreading, timeLimitSeconds, explain, stopwatch, environment));
+    }
+
+    /**
+     * 在任务线程上执行分析并写入书签文件。计数器和各阶段耗时记录到 {@link SolverStats}，
+     * 结束时提交 Flight Recorder 事件并追加到统计日志 (见 {@link ConflictStatsLog})。
+     *
+     * @return 在主线程上发送摘要的投递。
+     */
+    private static Runnable analyze(ConflictJobs.Job job, List<GTRecipe> rawRecipes, CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> preparedFuture,
+                                    List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> knownIndexes,
+                                    boolean useMultiThreading, int timeLimitSeconds, boolean explain, Stopwatch stopwatch, long environment) throws CommandSyntaxException {
+        SolverStats stats = new SolverStats();
+        Set<IConflictRecipe> initialSet;
+        RecipeTypeIndexCache.PreparedRecipeType prepared = null;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.PREPARE)) {
+            if (preparedFuture != null) {
+                // 单配方模式：必须配方直接取自配方类型的索引，它的供给是以整个配方类型为范围计算的
+                prepared = preparedFuture.join();
+                IConflictRecipe indexed = prepared.recipe(rawRecipes.get(0).getId());
+                initialSet = indexed != null ? Set.of(indexed) : new LinkedHashSet<>(TagMatching.prepare(rawRecipes));
+            } else {
+                // 多配方模式：以这组配方为范围准备输入 (启用时附加标签供给)，顺序不变，第一个仍是必须配方。
+                // 只使用已经构建完成的索引，正在构建的整个配方类型比直接解析这几个配方慢得多
+                List<RecipeTypeIndexCache.PreparedRecipeType> indexes = new ArrayList<>();
+                for (CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> index : knownIndexes) {
+                    if (index.isDone() && !index.isCompletedExceptionally()) indexes.add(index.join());
+                }
+                initialSet = new LinkedHashSet<>(TagMatching.prepare(rawRecipes, indexes));
+            }
+        }
+        Set<IConflictRecipe> finalSet;
+        SolveBudget budget;
+        Collection<IConflictRecipe> candidates;
+        ScopeIndex scopeIndex;
+        Component resultComponent;
+        Component reductionComponent = null;
         IConflictRecipe mandatoryRecipe = initialSet.iterator().next();
         String namespace = getNamespace(mandatoryRecipe);
 
-        if (initialSet.size() == 1) {
-            // 单个配方: 探索模式 (贪心)
-            GTRecipeType recipeType = getRecipeType(mandatoryRecipe);
-            Set<IConflictRecipe> searchSpace = getRecipesFromMachine(recipeManager, recipeType);
-            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.single_mode", recipeType.registryName, searchSpace.size()), true);
-            finalSet = ConflictDetector.findLargestConflictFreeSet_greedy(mandatoryRecipe, searchSpace, searchSpace);
+        if (prepared != null) {
+            // 单个配方: 探索模式 (并发的贪心组合 + 限时局部搜索)
+            // 配方类型的索引在服务器范围内缓存，重复分析同一台机器时直接开始求解
+            GTRecipeType recipeType = prepared.recipeType();
+            List<IConflictRecipe> searchSpace = prepared.recipes();
+            candidates = searchSpace;
+            scopeIndex = prepared.scopeIndex();
+            job.send(Component.translatable("commands.remakefactory.conflict.single_mode", recipeType.registryName, searchSpace.size()), true);
+            job.phase(ConflictJobs.Phase.SOLVING);
+            // 时间限制和取消同时作用于贪心组合和局部搜索
+            budget = job.track(createBudget(timeLimitSeconds > 0 ? timeLimitSeconds : DEFAULT_LOCAL_SEARCH_SECONDS, stats));
+            PortfolioResult portfolio = ConflictDetector.findLargestConflictFreeSet_portfolio(mandatoryRecipe, searchSpace, prepared.scopeIndex(), budget);
+            if (job.isCancelled()) return null;
+            finalSet = ConflictDetector.findLargestConflictFreeSet_localSearch(mandatoryRecipe, portfolio.recipes(), searchSpace, prepared.scopeIndex(), budget);
+            Component heuristicComponent = Component.translatable("commands.remakefactory.conflict.heuristic." + portfolio.heuristic().id(), portfolio.seed());
+            resultComponent = Component.translatable("commands.remakefactory.conflict.summary.heuristic", finalSet.size(), heuristicComponent, portfolio.recipes().size());
         } else {
             // 多个配方: 优化模式 (回溯)
-            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.multi_mode", initialSet.size(), useMultiThreading ? "multi-threaded" : "single-threaded"), true);
+            job.send(Component.translatable("commands.remakefactory.conflict.multi_mode", initialSet.size(), useMultiThreading ? "multi-threaded" : "single-threaded"), true);
             Set<IConflictRecipe> candidateSet = new HashSet<>(initialSet);
             candidateSet.remove(mandatoryRecipe);
+            candidates = initialSet;
+            scopeIndex = null;
+            job.phase(ConflictJobs.Phase.SOLVING);
+            budget = job.track(createBudget(timeLimitSeconds, stats));
+            SolveResult result;
             if (useMultiThreading) {
-                finalSet = ConflictDetector.findLargestConflictFreeSubset_multiThreaded(mandatoryRecipe, candidateSet, initialSet);
+                result = ConflictDetector.findLargestConflictFreeSubset_multiThreaded(mandatoryRecipe, candidateSet, initialSet, budget);
             } else {
-                finalSet = ConflictDetector.findLargestConflictFreeSubset(mandatoryRecipe, candidateSet, initialSet);
+                result = ConflictDetector.findLargestConflictFreeSubset(mandatoryRecipe, candidateSet, initialSet, budget);
             }
+            finalSet = result.recipes();
+            ReductionReport reductions = result.reductions();
+            if (reductions.candidates() > 0) {
+                reductionComponent = Component.translatable("commands.remakefactory.conflict.summary.reductions",
+                        reductions.removed(), reductions.candidates(), reductions.subsetOfMandatory(), reductions.unsafeAlongside(), reductions.duplicates());
+            }
+            // 预算耗尽时报告可证明的上界，让用户知道离最优解还有多远
+            resultComponent = result.isOptimal()
+                    ? Component.translatable("commands.remakefactory.conflict.summary.optimal", finalSet.size())
+                    : Component.translatable("commands.remakefactory.conflict.summary.gap", finalSet.size(), result.upperBound(), result.nodesExplored());
+        }
+        // 被取消的任务不写文件，由任务框架报告取消
+        if (job.isCancelled()) return null;
+
+        // 为每个被排除的候选找出删除极小的冲突证据，写入书签文件的注释
+        List<String> explanationLines = List.of();
+        if (explain) {
+            job.phase(ConflictJobs.Phase.EXPLAINING);
+            List<ConflictWitness> witnesses;
+            try (SolverStats.Timer timer = stats.time(SolverStats.Phase.EXPLAIN)) {
+                witnesses = scopeIndex != null
+                        ? ConflictDetector.explainRejections(finalSet, candidates, scopeIndex)
+                        : ConflictDetector.explainRejections(finalSet, candidates, initialSet);
+            }
+            explanationLines = new ArrayList<>();
+            for (ConflictWitness witness : witnesses.subList(0, Math.min(witnesses.size(), MAX_EXPLAINED_REJECTIONS))) {
+                explanationLines.add(String.format("# %s excluded: %s", recipeId(witness.rejected()), formatCover(witness.covered(), witness.cover())));
+            }
+            if (witnesses.size() > MAX_EXPLAINED_REJECTIONS) {
+                explanationLines.add(String.format("# ... %d more excluded recipes not listed", witnesses.size() - MAX_EXPLAINED_REJECTIONS));
+            }
+            job.send(Component.translatable("commands.remakefactory.conflict.explain.summary", witnesses.size()), false);
         }
 
         stopwatch.stop();
 
-        Component summary = Component.translatable("commands.remakefactory.conflict.summary", stopwatch.elapsed(TimeUnit.MILLISECONDS), initialSet.size(), finalSet.size());
+        MutableComponent summary = Component.translatable("commands.remakefactory.conflict.summary", stopwatch.elapsed(TimeUnit.MILLISECONDS), initialSet.size(), finalSet.size())
+                .append(" ")
+                .append(resultComponent);
+        if (reductionComponent != null) summary.append(" ").append(reductionComponent);
 
-        Optional<Component> filePathComponentOpt = writeOptimizedBookmarks(source, finalSet, summary.getString(), namespace);
+        job.phase(ConflictJobs.Phase.WRITING);
+        Optional<Component> filePathComponentOpt;
+        try (SolverStats.Timer timer = stats.time(SolverStats.Phase.WRITE)) {
+            filePathComponentOpt = writeOptimizedBookmarks(job.source, finalSet, summary.getString(), explanationLines, namespace);
+        }
 
-        source.sendSuccess(() -> summary, true); // 发送摘要
-        filePathComponentOpt.ifPresent(filePathComponent ->
-                source.sendSuccess(() -> filePathComponent, false) // 如果有，则发送可点击链接
-        );
+        String mode = prepared != null ? "single" : useMultiThreading ? "multi_threaded" : "multi";
+        stats.commitEvent(recipeId(mandatoryRecipe), initialSet.size(), finalSet.size(), budget.nodesExplored());
+        ConflictStatsLog.append(job.source.getServer(),
+                new ConflictStatsLog.Run(recipeId(mandatoryRecipe), mode, initialSet.size(), finalSet.size(), budget.nodesExplored(), environment), stats);
+        List<Component> statsLines = Config.COMMON.conflict.verbose.get() ? ConflictStatsLog.summary(stats, budget.nodesExplored()) : List.of();
+
+        return () -> {
+            job.source.sendSuccess(() -> summary, true); // 发送摘要
+            for (Component line : statsLines) job.source.sendSuccess(() -> line, false); // 详细统计 (conflict.verbose)
+            filePathComponentOpt.ifPresent(filePathComponent ->
+                    job.source.sendSuccess(() -> filePathComponent, false) // 如果有，则发送可点击链接
+            );
+        };
     }
 
     // --- 动态建议提供者 ---
+    static CompletableFuture<Suggestions> suggestRecipeIds(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
+        return SharedSuggestionProvider.suggest(
+                context.getSource().getServer().getRecipeManager().getRecipeIds().map(ResourceLocation::toString),
+                builder
+        );
+    }
+
     private static CompletableFuture<Suggestions> suggestBookmarkFiles(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
 
         try {
@@ -257,14 +476,17 @@ public final class ConflictCommand {
     }
 
     // --- 核心逻辑与辅助方法 ---
-    private static IConflictRecipe getRecipeById(RecipeManager recipeManager, ResourceLocation recipeId) throws CommandSyntaxException {
+    private static GTRecipe getRecipeById(RecipeManager recipeManager, ResourceLocation recipeId) throws CommandSyntaxException {
         Recipe<?> rawRecipe = recipeManager.byKey(recipeId).orElseThrow(ERROR_RECIPE_NOT_FOUND::create);
         if (!(rawRecipe instanceof GTRecipe)) throw ERROR_NOT_GT_RECIPE.create();
-        return new GTCEuConflictRecipe((GTRecipe) rawRecipe);
+        return (GTRecipe) rawRecipe;
     }
 
-    private static Set<IConflictRecipe> getRecipesFromBookmarks(RecipeManager recipeManager, String bookmarkFileStr, String requiredNamespace) throws CommandSyntaxException {
-        Set<IConflictRecipe> recipes = new HashSet<>();
+    /**
+     * 按书签顺序读取书签中的 GT 配方 (按ID去重)。只查找配方，不解析输入。
+     */
+    private static List<GTRecipe> getRecipesFromBookmarks(RecipeManager recipeManager, String bookmarkFileStr, String requiredNamespace) throws CommandSyntaxException {
+        Map<ResourceLocation, GTRecipe> recipes = new LinkedHashMap<>();
         Path bookmarkPath = Minecraft.getInstance().gameDirectory.toPath().resolve(bookmarkFileStr.replace("\"", ""));
         if (!Files.exists(bookmarkPath)) {
             throw new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.file_not_found", bookmarkFileStr)).create();
@@ -281,8 +503,8 @@ public final class ConflictCommand {
                             ResourceLocation recipeId = new ResourceLocation(mainParts[1].split("#")[0]);
                             if (recipeId.getNamespace().equals(requiredNamespace)) {
                                 recipeManager.byKey(recipeId).ifPresent(recipe -> {
-                                    if (recipe instanceof GTRecipe) {
-                                        recipes.add(new GTCEuConflictRecipe((GTRecipe) recipe));
+                                    if (recipe instanceof GTRecipe gtRecipe) {
+                                        recipes.putIfAbsent(gtRecipe.getId(), gtRecipe);
                                     }
                                 });
                             }
@@ -294,17 +516,14 @@ public final class ConflictCommand {
             LOGGER.error(Component.translatable("log.remakefactory.conflict.error.read_bookmark_io", bookmarkPath).getString(), e);
             throw ERROR_CANNOT_READ_FILE.create();
         }
-        return recipes;
-    }
-
-    private static Set<IConflictRecipe> getRecipesFromMachine(RecipeManager recipeManager, GTRecipeType recipeType) {
-        return recipeManager.getAllRecipesFor(recipeType).stream()
-                .filter(Objects::nonNull)
-                .map(GTCEuConflictRecipe::new)
-                .collect(Collectors.toSet());
+        return List.copyOf(recipes.values());
     }
 
-    private static Optional<Component> writeOptimizedBookmarks(CommandSourceStack source, Set<IConflictRecipe> recipeSet, String summary, String namespace) throws CommandSyntaxException {
+    /**
+     * 备份旧的书签文件并写入新的结果。分析在任务线程上进行，不同玩家的任务可能同时完成，
+     * 因此备份与写入整体串行执行；同一秒内的多个备份用序号区分，不会互相覆盖。
+     */
+    private static synchronized Optional<Component> writeOptimizedBookmarks(CommandSourceStack source, Set<IConflictRecipe> recipeSet, String summary, List<String> commentLines, String namespace) throws CommandSyntaxException {
         MinecraftServer server = source.getServer();
         Path outputPath = server.getFile("config/remakefactory").toPath();
         File outputDir = outputPath.toFile();
@@ -318,12 +537,19 @@ public final class ConflictCommand {
         Path filePath = outputPath.resolve(fileName);
         String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
         Path backupFilePath = outputPath.resolve(String.format("bookmarks_%s_%s.bak", namespace, timestamp));
+        for (int n = 1; Files.exists(backupFilePath); n++) {
+            backupFilePath = outputPath.resolve(String.format("bookmarks_%s_%s_%d.bak", namespace, timestamp, n));
+        }
         try { if (Files.exists(filePath)) { Files.move(filePath, backupFilePath, StandardCopyOption.REPLACE_EXISTING); } } catch (IOException e) { LOGGER.warn(Component.translatable("log.remakefactory.conflict.warn.backup_fail", e.getMessage()).getString()); }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
             writer.write(String.format("# Optimized Recipe Bookmarks for namespace '%s' - Generated by RemakeFactory", namespace));
             writer.newLine(); writer.write("# " + summary);
             writer.newLine(); writer.write("# Timestamp: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
-            writer.newLine(); writer.newLine();
+            writer.newLine();
+            for (String commentLine : commentLines) {
+                writer.write(commentLine); writer.newLine();
+            }
+            writer.newLine();
             for (IConflictRecipe conflictRecipe : recipeSet) {
                 if (conflictRecipe.getUnderlyingRecipe() instanceof GTRecipe gtRecipe) {
                     formatRecipeToBookmarkString(gtRecipe).ifPresent(line -> {
@@ -332,17 +558,7 @@ public final class ConflictCommand {
                 }
             }
             LOGGER.info(Component.translatable("log.remakefactory.conflict.info.write_success", filePath).getString());
-            String relativePath = server.getFile("").toPath().relativize(filePath).toString().replace('\\', '/');
-            MutableComponent clickableFilePath = Component.literal(relativePath)
-                    .withStyle(style -> style
-                            .withColor(ChatFormatting.GREEN)
-                            .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_FILE, filePath.toAbsolutePath().toString()))
-                            .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Component.translatable("remakefactory.chat.file_open.click")))
-                    );
-
-            MutableComponent bracketedComponent = Component.translatable("chat.square_brackets", clickableFilePath);
-
-            Component filePathComponent = Component.translatable("commands.remakefactory.conflict.write_success", bracketedComponent);
+            Component filePathComponent = Component.translatable("commands.remakefactory.conflict.write_success", fileLink(server, filePath));
 
             return Optional.of(filePathComponent);
         } catch (IOException e) {
@@ -351,31 +567,59 @@ public final class ConflictCommand {
         }
     }
 
+    /**
+     * 生成一个指向输出文件的可点击链接 (显示相对于游戏根目录的路径)。
+     */
+    static Component fileLink(MinecraftServer server, Path filePath) {
+        String relativePath = server.getFile("").toPath().relativize(filePath).toString().replace('\\', '/');
+        MutableComponent clickableFilePath = Component.literal(relativePath)
+                .withStyle(style -> style
+                        .withColor(ChatFormatting.GREEN)
+                        .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_FILE, filePath.toAbsolutePath().toString()))
+                        .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Component.translatable("remakefactory.chat.file_open.click")))
+                );
+        return Component.translatable("chat.square_brackets", clickableFilePath);
+    }
+
+    /**
+     * 把"covered 被 cover 覆盖"格式化为 {@code covered <= a + b}，用于书签注释和扫描报告。
+     */
+    static String formatCover(IConflictRecipe covered, List<IConflictRecipe> cover) {
+        StringJoiner joiner = new StringJoiner(" + ");
+        for (IConflictRecipe recipe : cover) joiner.add(recipeId(recipe));
+        return recipeId(covered) + " <= " + (cover.isEmpty() ? "(no inputs)" : joiner.toString());
+    }
+
+    static String recipeId(IConflictRecipe recipe) {
+        if (recipe.getUnderlyingRecipe() instanceof GTRecipe gtRecipe) return gtRecipe.getId().toString();
+        return String.valueOf(recipe.getUnderlyingRecipe());
+    }
+
     private static Optional<String> formatRecipeToBookmarkString(GTRecipe recipe) {
-        String machineId = recipe.recipeType.registryName.toString();
-        String recipeId = recipe.getId().toString();
+        return bookmarkOutput(recipe).map(output -> String.format("R:%s#%s#%s", recipe.recipeType.registryName, recipe.getId(), output));
+    }
+
+    /**
+     * 书签中配方ID之后的输出部分：第一个物品输出，没有时取第一个流体输出。
+     */
+    static Optional<String> bookmarkOutput(GTRecipe recipe) {
         List<Content> itemOutputs = recipe.outputs.get(ItemRecipeCapability.CAP);
         if (itemOutputs != null && !itemOutputs.isEmpty()) {
             Object contentObj = itemOutputs.get(0).content;
             if (contentObj instanceof SizedIngredient si && si.getItems().length > 0) {
-                return Optional.of(String.format("R:%s#%s#item_stack&%s", machineId, recipeId, BuiltInRegistries.ITEM.getKey(si.getItems()[0].getItem())));
+                return Optional.of(String.format("item_stack&%s", BuiltInRegistries.ITEM.getKey(si.getItems()[0].getItem())));
             }
         }
         List<Content> fluidOutputs = recipe.outputs.get(FluidRecipeCapability.CAP);
         if (fluidOutputs != null && !fluidOutputs.isEmpty()) {
             Object contentObj = fluidOutputs.get(0).content;
             if (contentObj instanceof FluidIngredient fi && fi.getStacks().length > 0) {
-                return Optional.of(String.format("R:%s#%s#fluid_stack&fluid:%s", machineId, recipeId, BuiltInRegistries.FLUID.getKey(fi.getStacks()[0].getFluid())));
+                return Optional.of(String.format("fluid_stack&fluid:%s", BuiltInRegistries.FLUID.getKey(fi.getStacks()[0].getFluid())));
             }
         }
         return Optional.empty();
     }
 
-    private static GTRecipeType getRecipeType(IConflictRecipe recipe) throws CommandSyntaxException {
-        if (recipe.getUnderlyingRecipe() instanceof GTRecipe gtRecipe) return gtRecipe.recipeType;
-        throw ERROR_NOT_GT_RECIPE.create();
-    }
-
     private static String getNamespace(IConflictRecipe recipe) {
         if (recipe.getUnderlyingRecipe() instanceof GTRecipe gtRecipe) return gtRecipe.getId().getNamespace();
         return "unknown";
@@ -0,0 +1,133 @@
+package com.remakefactory.remakefactory.command.conflict;
+
+import com.gregtechceu.gtceu.api.recipe.GTRecipe;
+import com.gregtechceu.gtceu.api.recipe.GTRecipeType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import com.remakefactory.remakefactory.util.recipe.conflict.IConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeDump;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeTypeIndexCache;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * /ref conflict dump [recipe_type]：把一个或全部 GT 配方类型的已准备配方 (以整个类型为范围，启用标签匹配时带供给)
+ * 写入 config/remakefactory/recipe_dumps 下的转储文件 (格式见 {@link RecipeDump})。
+ * <p>
+ * 转储与游戏无关，可以在游戏之外读取：基准测试用它作为真实整合包的配方数据，
+ * 离线分析器 (conflict-core 模块的 ConflictAnalyzer) 直接分析它并写出书签，因此每个配方还记录了书签中的输出部分。
+ * 配方列表在主线程上读取，解析和写入作为后台任务执行 (见 {@link ConflictJobs})。
+ */
+final class ConflictDump {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+    private static final DynamicCommandExceptionType ERROR_UNKNOWN_RECIPE_TYPE = new DynamicCommandExceptionType(id -> Component.translatable("commands.remakefactory.error.unknown_recipe_type", id));
+    private static final SimpleCommandExceptionType ERROR_CANNOT_WRITE_DUMP = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_write_dump"));
+
+    private static final String OUTPUT_DIR = "config/remakefactory/recipe_dumps";
+
+    private ConflictDump() {}
+
+    static LiteralArgumentBuilder<CommandSourceStack> register() {
+        return Commands.literal("dump")
+                .executes(context -> run(context.getSource(), gtRecipeTypes()))
+                .then(Commands.argument("recipe_type", ResourceLocationArgument.id())
+                        .suggests((context, builder) -> SharedSuggestionProvider.suggestResource(gtRecipeTypes().stream().map(type -> type.registryName), builder))
+                        .executes(context -> run(context.getSource(), List.of(recipeType(ResourceLocationArgument.getId(context, "recipe_type")))))
+                );
+    }
+
+    private static List<GTRecipeType> gtRecipeTypes() {
+        return BuiltInRegistries.RECIPE_TYPE.stream()
+                .filter(GTRecipeType.class::isInstance)
+                .map(GTRecipeType.class::cast)
+                .toList();
+    }
+
+    private static GTRecipeType recipeType(ResourceLocation id) throws CommandSyntaxException {
+        if (BuiltInRegistries.RECIPE_TYPE.get(id) instanceof GTRecipeType recipeType) return recipeType;
+        throw ERROR_UNKNOWN_RECIPE_TYPE.create(id);
+    }
+
+    private static int run(CommandSourceStack source, List<GTRecipeType> recipeTypes) throws CommandSyntaxException {
+        MinecraftServer server = source.getServer();
+        // 配方列表必须在主线程上读取，解析在求解线程池上进行
+        List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures = new ArrayList<>(recipeTypes.size());
+        long size = 0;
+        for (GTRecipeType recipeType : recipeTypes) {
+            futures.add(RecipeTypeIndexCache.getAsync(server.getRecipeManager(), recipeType));
+            size += server.getRecipeManager().getAllRecipesFor(recipeType).size();
+        }
+        Component description = Component.translatable("commands.remakefactory.conflict.dump.description", recipeTypes.size());
+        return ConflictJobs.submit(source, description, size, job -> write(job, server, futures));
+    }
+
+    private static String bookmarkOutput(IConflictRecipe recipe) {
+        return recipe.getUnderlyingRecipe() instanceof GTRecipe gtRecipe ? ConflictCommand.bookmarkOutput(gtRecipe).orElse(null) : null;
+    }
+
+    /**
+     * 在任务线程上等待各类型准备完成并写入转储文件。
+     *
+     * @return 在主线程上发送结果的投递。
+     */
+    private static Runnable write(ConflictJobs.Job job, MinecraftServer server, List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures) throws CommandSyntaxException {
+        List<RecipeTypeIndexCache.PreparedRecipeType> prepared = new ArrayList<>(futures.size());
+        for (CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType> future : futures) {
+            if (job.isCancelled()) return null;
+            try {
+                prepared.add(future.join());
+            } catch (CompletionException e) {
+                LOGGER.error(Component.translatable("log.remakefactory.conflict.error.dump_type").getString(), e.getCause());
+            }
+        }
+
+        job.phase(ConflictJobs.Phase.WRITING);
+        Path outputPath = server.getFile(OUTPUT_DIR).toPath();
+        Path filePath = outputPath.resolve(String.format("recipes_%s.txt", new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date())));
+        int recipes = 0;
+        try {
+            Files.createDirectories(outputPath);
+            try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+                RecipeDump.writeHeader(writer);
+                writer.write("# Timestamp: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+                writer.newLine();
+                for (RecipeTypeIndexCache.PreparedRecipeType type : prepared) {
+                    if (job.isCancelled()) return null;
+                    RecipeDump.writeType(writer, type.recipeType().registryName.toString(), type.recipes(), ConflictCommand::recipeId, ConflictDump::bookmarkOutput);
+                    recipes += type.recipes().size();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(Component.translatable("log.remakefactory.conflict.error.dump_write_io", filePath).getString(), e);
+            throw ERROR_CANNOT_WRITE_DUMP.create();
+        }
+
+        int types = prepared.size();
+        int total = recipes;
+        return () -> job.source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.dump.done",
+                total, types, ConflictCommand.fileLink(server, filePath)), true);
+    }
+}
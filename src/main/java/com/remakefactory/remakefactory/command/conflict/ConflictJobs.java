@@ -0,0 +1,330 @@
+package com.remakefactory.remakefactory.command.conflict;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.Dynamic2CommandExceptionType;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+import com.remakefactory.remakefactory.config.Config;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveBudget;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverPool;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentUtils;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台冲突分析任务：/ref conflict test 和 /ref conflict bookmarks 的求解、解释和文件写入都不在服务器主线程上进行。
+ * <p>
+ * 任务先进入一个有界队列，再由调度器按配置分派到任务线程上 (求解器本身使用 {@link SolverPool}，
+ * 其并行度同样来自配置)：
+ * <ul>
+ *     <li>同时运行的任务数量不超过 {@code conflict.jobWorkers}；</li>
+ *     <li>每个提交者同时运行的任务数量不超过 {@code conflict.maxJobsPerPlayer}，超出的任务留在队列中等待；</li>
+ *     <li>队列按任务规模 (配方数量) 排序，小任务优先，规模相同时先提交的优先；</li>
+ *     <li>排队的任务达到 {@code conflict.maxQueuedJobs} 时拒绝新的提交，并告知提交者稍后再试。</li>
+ * </ul>
+ * 运行期间定期向提交者报告已展开的节点数和目前最优解的大小。所有消息都通过 {@link MinecraftServer#execute} 回到主线程发送，
+ * 最终结果也在主线程上投递。/ref conflict status 列出排队和运行中的任务，/ref conflict cancel 把任务移出队列，
+ * 或通过 {@link SolveBudget#cancel()} 协作式地停止正在运行的任务；按编号取消只允许任务的提交者或管理员 (权限等级 2)。
+ */
+public final class ConflictJobs {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+    private static final DynamicCommandExceptionType ERROR_NO_SUCH_JOB = new DynamicCommandExceptionType(id -> Component.translatable("commands.remakefactory.error.no_such_job", id));
+    private static final DynamicCommandExceptionType ERROR_NOT_JOB_OWNER = new DynamicCommandExceptionType(id -> Component.translatable("commands.remakefactory.error.not_job_owner", id));
+    private static final Dynamic2CommandExceptionType ERROR_QUEUE_FULL = new Dynamic2CommandExceptionType((queued, limit) -> Component.translatable("commands.remakefactory.error.job_queue_full", queued, limit));
+
+    // 进度消息的间隔 (秒)
+    private static final int PROGRESS_INTERVAL_SECONDS = 10;
+
+    // 所有排队和运行中的任务
+    private static final Map<Integer, Job> JOBS = new ConcurrentHashMap<>();
+    private static final AtomicInteger JOB_COUNTER = new AtomicInteger();
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    // 并发数量由调度器控制，线程池本身不设上限
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "RemakeFactory-Conflict-Job-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ScheduledExecutorService PROGRESS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RemakeFactory-Conflict-Job-Progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 以下状态由 ConflictJobs.class 保护
+    private static final TreeSet<Job> QUEUE = new TreeSet<>(Comparator.comparingLong((Job job) -> job.size).thenComparingInt(job -> job.id));
+    private static final Map<Object, Integer> RUNNING_PER_OWNER = new HashMap<>();
+    private static int running;
+
+    private ConflictJobs() {}
+
+    /**
+     * 任务在后台执行的部分。
+     */
+    @FunctionalInterface
+    interface Work {
+        /**
+         * @return 在服务器主线程上执行的结果投递 (发送摘要等)。
+         */
+        Runnable run(Job job) throws CommandSyntaxException;
+    }
+
+    /** 任务所处的阶段，用于状态和进度消息。 */
+    enum Phase {
+        QUEUED, PREPARING, SOLVING, EXPLAINING, WRITING;
+
+        Component component() {
+            return Component.translatable("commands.remakefactory.conflict.job.phase." + name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * 一个排队或运行中的任务。除 {@link #id} 等不可变字段外，状态可以被任务线程、进度线程和主线程同时读取。
+     */
+    static final class Job {
+        final int id;
+        final CommandSourceStack source;
+        final Component description;
+        // 用于排序的规模估计 (配方数量)
+        private final long size;
+        // 用于按提交者限制并发：实体的 UUID，没有实体时 (例如控制台) 使用名称
+        private final Object owner;
+        private final Work work;
+        private final long submitNanos = System.nanoTime();
+        private volatile Phase phase = Phase.QUEUED;
+        private volatile SolveBudget budget;
+        private volatile boolean cancelled;
+
+        private Job(int id, CommandSourceStack source, Component description, long size, Work work) {
+            this.id = id;
+            this.source = source;
+            this.description = description;
+            this.size = size;
+            this.owner = ownerOf(source);
+            this.work = work;
+        }
+
+        /** 进入新的阶段。 */
+        void phase(Phase phase) {
+            this.phase = phase;
+        }
+
+        /**
+         * 登记求解使用的预算，使状态查询能读到进度、取消能停止求解。任务已被取消时预算立即被取消。
+         */
+        SolveBudget track(SolveBudget budget) {
+            this.budget = budget;
+            if (cancelled) budget.cancel();
+            return budget;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** 在主线程上向提交者发送一条消息。 */
+        void send(Component message, boolean broadcast) {
+            source.getServer().execute(() -> source.sendSuccess(() -> message, broadcast));
+        }
+
+        private Component progress() {
+            SolveBudget current = budget;
+            long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - submitNanos);
+            long nodes = current == null ? 0 : current.nodesExplored();
+            // 加上必须配方
+            int best = current == null ? 0 : current.incumbentSize() + 1;
+            return Component.translatable("commands.remakefactory.conflict.job.progress", id, description, phase.component(), seconds, nodes, best);
+        }
+    }
+
+    static LiteralArgumentBuilder<CommandSourceStack> registerStatus() {
+        return Commands.literal("status")
+                .executes(ConflictJobs::runStatus);
+    }
+
+    static LiteralArgumentBuilder<CommandSourceStack> registerCancel() {
+        return Commands.literal("cancel")
+                .executes(ConflictJobs::runCancelOwn)
+                .then(Commands.argument("job_id", IntegerArgumentType.integer(1))
+                        .executes(context -> runCancel(context, IntegerArgumentType.getInteger(context, "job_id"))));
+    }
+
+    /**
+     * 提交一个后台任务。任务进入队列，有空闲的名额时立即开始。
+     *
+     * @param size 任务规模的估计 (配方数量)，较小的任务优先运行。
+     * @return 任务编号。
+     * @throws CommandSyntaxException 队列已满。
+     */
+    static int submit(CommandSourceStack source, Component description, long size, Work work) throws CommandSyntaxException {
+        Job job;
+        int ahead;
+        synchronized (ConflictJobs.class) {
+            int limit = Config.COMMON.conflict.maxQueuedJobs.get();
+            if (QUEUE.size() >= limit) throw ERROR_QUEUE_FULL.create(QUEUE.size(), limit);
+            job = new Job(JOB_COUNTER.incrementAndGet(), source, description, size, work);
+            JOBS.put(job.id, job);
+            QUEUE.add(job);
+            ahead = QUEUE.headSet(job).size();
+        }
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.submitted", job.id, description), false);
+        dispatch();
+        if (job.phase == Phase.QUEUED) {
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.queued", job.id, ahead), false);
+        }
+        return job.id;
+    }
+
+    /**
+     * 取消所有任务 (服务器停止时调用)。
+     */
+    public static void cancelAll() {
+        synchronized (ConflictJobs.class) {
+            QUEUE.forEach(job -> JOBS.remove(job.id));
+            QUEUE.clear();
+        }
+        JOBS.values().forEach(ConflictJobs::cancel);
+    }
+
+    // --- 调度 ---
+
+    /**
+     * 按队列顺序启动任务，直到没有空闲的任务名额；已达到并发上限的提交者的任务被跳过，留在队列中。
+     */
+    private static void dispatch() {
+        List<Job> started = new ArrayList<>();
+        synchronized (ConflictJobs.class) {
+            int workers = Config.COMMON.conflict.jobWorkers.get();
+            int perOwner = Config.COMMON.conflict.maxJobsPerPlayer.get();
+            Iterator<Job> iterator = QUEUE.iterator();
+            while (running < workers && iterator.hasNext()) {
+                Job job = iterator.next();
+                if (RUNNING_PER_OWNER.getOrDefault(job.owner, 0) >= perOwner) continue;
+                iterator.remove();
+                running++;
+                RUNNING_PER_OWNER.merge(job.owner, 1, Integer::sum);
+                job.phase(Phase.PREPARING);
+                started.add(job);
+            }
+        }
+        for (Job job : started) EXECUTOR.execute(() -> execute(job));
+    }
+
+    /**
+     * 按当前配置的线程数调整求解线程池并返回它。
+     */
+    static ForkJoinPool solverPool() {
+        SolverPool.configure(Config.COMMON.conflict.solverThreads.get());
+        return SolverPool.get();
+    }
+
+    private static void execute(Job job) {
+        // 配置可能在两次任务之间被修改
+        solverPool();
+        ScheduledFuture<?> progress = PROGRESS.scheduleAtFixedRate(() -> job.send(job.progress(), false),
+                PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        CommandSourceStack source = job.source;
+        Runnable delivery;
+        try {
+            delivery = job.isCancelled() ? null : job.work.run(job);
+        } catch (CommandSyntaxException e) {
+            Component message = ComponentUtils.fromMessage(e.getRawMessage());
+            delivery = () -> source.sendFailure(message);
+        } catch (RuntimeException e) {
+            LOGGER.error(Component.translatable("log.remakefactory.conflict.error.job_failed", job.id).getString(), e);
+            delivery = () -> source.sendFailure(Component.translatable("commands.remakefactory.conflict.job.failed", job.id, job.description));
+        } finally {
+            progress.cancel(false);
+            JOBS.remove(job.id);
+            synchronized (ConflictJobs.class) {
+                running--;
+                RUNNING_PER_OWNER.computeIfPresent(job.owner, (owner, count) -> count > 1 ? count - 1 : null);
+            }
+            dispatch();
+        }
+        Runnable result = delivery;
+        source.getServer().execute(() -> {
+            if (job.isCancelled()) {
+                source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.cancelled", job.id, job.description), true);
+            } else if (result != null) {
+                result.run();
+            }
+        });
+    }
+
+    /**
+     * 取消一个任务：排队中的任务直接移出队列，运行中的任务停止求解并放弃结果。
+     */
+    private static void cancel(Job job) {
+        job.cancelled = true;
+        boolean dequeued;
+        synchronized (ConflictJobs.class) {
+            dequeued = QUEUE.remove(job);
+        }
+        if (dequeued) {
+            JOBS.remove(job.id);
+            job.send(Component.translatable("commands.remakefactory.conflict.job.cancelled", job.id, job.description), true);
+            return;
+        }
+        SolveBudget current = job.budget;
+        if (current != null) current.cancel();
+    }
+
+    private static Object ownerOf(CommandSourceStack source) {
+        return source.getEntity() != null ? source.getEntity().getUUID() : source.getTextName();
+    }
+
+    // --- 指令执行逻辑 ---
+
+    private static int runStatus(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        List<Job> jobs = new ArrayList<>(JOBS.values());
+        if (jobs.isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.none"), false);
+            return 0;
+        }
+        jobs.sort(Comparator.comparingInt(job -> job.id));
+        for (Job job : jobs) {
+            Component progress = job.progress();
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.status", progress, job.source.getTextName()), false);
+        }
+        return jobs.size();
+    }
+
+    private static int runCancelOwn(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        Object owner = ownerOf(source);
+        int cancelled = 0;
+        for (Job job : JOBS.values()) {
+            if (job.owner.equals(owner) && !job.isCancelled()) {
+                cancel(job);
+                cancelled++;
+            }
+        }
+        int count = cancelled;
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.cancel_requested", count), false);
+        return count;
+    }
+
+    private static int runCancel(CommandContext<CommandSourceStack> context, int jobId) throws CommandSyntaxException {
+        Job job = JOBS.get(jobId);
+        if (job == null) throw ERROR_NO_SUCH_JOB.create(jobId);
+        CommandSourceStack source = context.getSource();
+        // 只有提交者本人或管理员可以取消指定的任务
+        if (!job.owner.equals(ownerOf(source)) && !source.hasPermission(2)) throw ERROR_NOT_JOB_OWNER.create(jobId);
+        cancel(job);
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.job.cancel_requested", 1), false);
+        return 1;
+    }
+}
@@ -0,0 +1,168 @@
+package com.remakefactory.remakefactory.command.conflict;
+
+import com.google.common.base.Stopwatch;
+import com.gregtechceu.gtceu.api.recipe.GTRecipeType;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import com.remakefactory.remakefactory.util.recipe.conflict.Ambiguity;
+import com.remakefactory.remakefactory.util.recipe.conflict.AmbiguityScanResult;
+import com.remakefactory.remakefactory.util.recipe.conflict.AmbiguityScanner;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeTypeIndexCache;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolveBudget;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverPool;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /ref conflict scan：在所有 GT 配方类型中并行查找歧义配方 (被另一个配方或两个配方的组合覆盖的配方)，
+ * 按类型顺序把报告写入 config/remakefactory 下的文件，并定期向执行者报告进度。
+ * <p>
+ * 扫描作为后台任务执行 (见 {@link ConflictJobs})：与其他冲突任务一起排队、受任务数量限制，
+ * 出现在 /ref conflict status 中，可以被取消，服务器停止时也会被取消。
+ * 各类型的索引通过 {@link RecipeTypeIndexCache} 获取 (与其他冲突指令共享)，各类型的扫描在 {@link SolverPool} 上并行进行，
+ * 共享任务登记的预算，取消时立即停止。同一时间只允许一次扫描。
+ */
+final class ConflictScan {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+    private static final SimpleCommandExceptionType ERROR_SCAN_RUNNING = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.scan_running"));
+    private static final SimpleCommandExceptionType ERROR_CANNOT_WRITE_REPORT = new SimpleCommandExceptionType(Component.translatable("commands.remakefactory.error.cannot_write_scan"));
+
+    // 说明各类型标题中的截断数量 (见 AmbiguityScanResult#truncatedRecipes)
+    private static final String TRUNCATION_NOTE = "# Combination conflicts are searched with per-recipe partner limits; \"recipes truncated\" counts recipes that may have more unreported combinations.";
+
+    // 进度消息的数量上限 (大约每完成 1/PROGRESS_STEPS 的类型报告一次)
+    private static final int PROGRESS_STEPS = 10;
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private ConflictScan() {}
+
+    static int run(CommandSourceStack source) throws CommandSyntaxException {
+        // 排队中的扫描在开始时还会再检查一次
+        if (RUNNING.get()) throw ERROR_SCAN_RUNNING.create();
+        MinecraftServer server = source.getServer();
+        List<GTRecipeType> recipeTypes = BuiltInRegistries.RECIPE_TYPE.stream()
+                .filter(GTRecipeType.class::isInstance)
+                .map(GTRecipeType.class::cast)
+                .toList();
+
+        // 配方列表必须在主线程上读取，索引的构建在求解线程池上进行
+        ConflictJobs.solverPool();
+        List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures = new ArrayList<>(recipeTypes.size());
+        long size = 0;
+        for (GTRecipeType recipeType : recipeTypes) {
+            futures.add(RecipeTypeIndexCache.getAsync(server.getRecipeManager(), recipeType));
+            size += server.getRecipeManager().getAllRecipesFor(recipeType).size();
+        }
+        Component description = Component.translatable("commands.remakefactory.conflict.scan.description", recipeTypes.size());
+        return ConflictJobs.submit(source, description, size, job -> {
+            if (!RUNNING.compareAndSet(false, true)) throw ERROR_SCAN_RUNNING.create();
+            try {
+                return scan(job, server, recipeTypes, futures);
+            } finally {
+                RUNNING.set(false);
+            }
+        });
+    }
+
+    /**
+     * 在任务线程上扫描所有类型并写入报告。
+     *
+     * @return 在主线程上发送结果的投递。
+     */
+    private static Runnable scan(ConflictJobs.Job job, MinecraftServer server, List<GTRecipeType> recipeTypes,
+                                 List<CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures) throws CommandSyntaxException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Path outputPath = server.getFile("config/remakefactory").toPath();
+        Path filePath = outputPath.resolve(String.format("conflict_scan_%s.txt", new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date())));
+
+        job.send(Component.translatable("commands.remakefactory.conflict.scan.start", recipeTypes.size(), SolverPool.get().getParallelism()), true);
+        job.phase(ConflictJobs.Phase.SOLVING);
+        SolveBudget budget = job.track(SolveBudget.unlimited());
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger pairwise = new AtomicInteger();
+        AtomicInteger combinations = new AtomicInteger();
+        int progressStep = Math.max(1, recipeTypes.size() / PROGRESS_STEPS);
+
+        // 各类型在准备好之后立即在求解线程池上扫描，报告按类型顺序写入
+        List<CompletableFuture<String>> sections = new ArrayList<>(recipeTypes.size());
+        for (int i = 0; i < recipeTypes.size(); i++) {
+            GTRecipeType recipeType = recipeTypes.get(i);
+            sections.add(futures.get(i)
+                    .thenApplyAsync(prepared -> scanType(prepared, budget, pairwise, combinations), SolverPool.get())
+                    .exceptionally(error -> {
+                        LOGGER.error(Component.translatable("log.remakefactory.conflict.error.scan_type", recipeType.registryName).getString(), error);
+                        return null;
+                    })
+                    .whenComplete((section, error) -> {
+                        int done = finished.incrementAndGet();
+                        if (done % progressStep == 0 && done < recipeTypes.size() && !job.isCancelled()) {
+                            job.send(Component.translatable("commands.remakefactory.conflict.scan.progress", done, recipeTypes.size()), false);
+                        }
+                    }));
+        }
+
+        try {
+            Files.createDirectories(outputPath);
+            try (BufferedWriter writer = Files.newBufferedWriter(filePath)) {
+                writer.write("# Recipe conflict scan - Generated by RemakeFactory");
+                writer.newLine(); writer.write("# Timestamp: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+                writer.newLine(); writer.write("# Format: <covered recipe> <= <covering recipe> [+ <covering recipe>]");
+                writer.newLine(); writer.write(TRUNCATION_NOTE);
+                writer.newLine();
+                for (CompletableFuture<String> section : sections) {
+                    String text = section.join();
+                    // 被取消时尚未开始的扫描会立即返回，这里只需等待正在进行的扫描结束
+                    if (job.isCancelled()) return null;
+                    if (text == null) continue;
+                    writer.newLine(); writer.write(text);
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            budget.cancel();
+            LOGGER.error(Component.translatable("log.remakefactory.conflict.error.scan_write_io", filePath).getString(), e);
+            throw ERROR_CANNOT_WRITE_REPORT.create();
+        }
+
+        stopwatch.stop();
+        long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        return () -> job.source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.scan.done",
+                elapsed, pairwise.get(), combinations.get(), recipeTypes.size(),
+                ConflictCommand.fileLink(server, filePath)), true);
+    }
+
+    /**
+     * 扫描一个配方类型，返回该类型在报告中的段落。
+     */
+    private static String scanType(RecipeTypeIndexCache.PreparedRecipeType prepared, SolveBudget budget, AtomicInteger pairwise, AtomicInteger combinations) {
+        AmbiguityScanResult result = AmbiguityScanner.scan(prepared.scopeIndex(), budget);
+        List<Ambiguity> ambiguities = result.ambiguities();
+        int pairs = 0;
+        StringBuilder body = new StringBuilder();
+        for (Ambiguity ambiguity : ambiguities) {
+            if (ambiguity.cover().size() <= 1) pairs++;
+            body.append(ConflictCommand.formatCover(ambiguity.covered(), ambiguity.cover())).append(System.lineSeparator());
+        }
+        pairwise.addAndGet(pairs);
+        combinations.addAndGet(ambiguities.size() - pairs);
+        return String.format("## %s (%d recipes, %d pairwise, %d combinations, %d recipes truncated)%n", prepared.recipeType().registryName,
+                prepared.recipes().size(), pairs, ambiguities.size() - pairs, result.truncatedRecipes()) + body;
+    }
+}
@@ -0,0 +1,288 @@
+package com.remakefactory.remakefactory.command.conflict;
+
+import com.gregtechceu.gtceu.api.recipe.GTRecipe;
+import com.gregtechceu.gtceu.api.recipe.GTRecipeType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.remakefactory.remakefactory.util.recipe.conflict.ConflictSession;
+import com.remakefactory.remakefactory.util.recipe.conflict.ConflictWitness;
+import com.remakefactory.remakefactory.util.recipe.conflict.GTCEuConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.IConflictRecipe;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeTypeIndexCache;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.crafting.RecipeManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * /ref conflict session：每个玩家一个常驻内存的增量冲突会话，用于逐步搭建产线。
+ * <p>
+ * 会话按配方类型划分，每个类型一个 {@link ConflictSession}，以该类型的全部配方 (来自 {@link RecipeTypeIndexCache}) 为范围。
+ * 加入、移除和检查都是增量的，不需要像 /ref conflict test 那样每次从ID列表重新分析。
+ * 配方重载后缓存的索引会被重建，下次访问时会话会自动迁移到新索引上。会话在服务器停止时清空。
+ * <p>
+ * 索引的构建不在主线程上等待：尚未构建完成时指令先返回，构建完成后在主线程上继续执行。
+ */
+public final class ConflictSessions {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+
+    private static final Map<UUID, PlayerSession> SESSIONS = new ConcurrentHashMap<>();
+
+    private ConflictSessions() {}
+
+    /** 一个玩家的会话：配方类型 -> 该类型的会话。只在服务器主线程上访问。 */
+    private static final class PlayerSession {
+        private final Map<GTRecipeType, TypeSession> types = new LinkedHashMap<>();
+    }
+
+    /** 一个配方类型的会话，以及它所基于的已准备索引 (用于发现索引是否已被重建)。 */
+    private record TypeSession(RecipeTypeIndexCache.PreparedRecipeType prepared, ConflictSession session) {}
+
+    static LiteralArgumentBuilder<CommandSourceStack> register() {
+        return Commands.literal("session")
+                .then(Commands.literal("add")
+                        .then(Commands.argument("recipe_ids", StringArgumentType.greedyString())
+                                .suggests(ConflictCommand::suggestRecipeIds)
+                                .executes(ConflictSessions::runAdd)))
+                .then(Commands.literal("remove")
+                        .then(Commands.argument("recipe_ids", StringArgumentType.greedyString())
+                                .suggests(ConflictCommand::suggestRecipeIds)
+                                .executes(ConflictSessions::runRemove)))
+                .then(Commands.literal("check")
+                        .then(Commands.argument("recipe_id", StringArgumentType.greedyString())
+                                .suggests(ConflictCommand::suggestRecipeIds)
+                                .executes(ConflictSessions::runCheck)))
+                .then(Commands.literal("show")
+                        .executes(ConflictSessions::runShow))
+                .then(Commands.literal("clear")
+                        .executes(ConflictSessions::runClear));
+    }
+
+    /**
+     * 丢弃所有玩家的会话 (服务器停止时调用)。
+     */
+    public static void clear() {
+        SESSIONS.clear();
+    }
+
+    // --- 指令执行逻辑 ---
+
+    private static int runAdd(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        UUID player = playerId(source);
+        List<GTRecipe> recipes = resolveRecipes(source, StringArgumentType.getString(context, "recipe_ids"));
+        withIndexes(source, recipes, indexes -> {
+            PlayerSession playerSession = playerSession(player);
+            for (GTRecipe recipe : recipes) {
+                RecipeTypeIndexCache.PreparedRecipeType prepared = indexes.get(recipe.recipeType);
+                ConflictSession session = sessionFor(source, playerSession, prepared);
+                IConflictRecipe conflictRecipe = indexed(prepared, recipe);
+                if (session.contains(conflictRecipe)) {
+                    source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.already", recipe.getId().toString()), false);
+                    continue;
+                }
+                ConflictWitness witness = session.add(conflictRecipe);
+                if (witness == null) {
+                    int size = session.size();
+                    source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.added", recipe.getId().toString(), recipe.recipeType.registryName, size), false);
+                } else {
+                    source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.rejected", recipe.getId().toString(), ConflictCommand.formatCover(witness.covered(), witness.cover())));
+                }
+            }
+        });
+        return 1;
+    }
+
+    private static int runRemove(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        UUID player = playerId(source);
+        List<GTRecipe> recipes = new ArrayList<>();
+        for (GTRecipe recipe : resolveRecipes(source, StringArgumentType.getString(context, "recipe_ids"))) {
+            if (playerSession(player).types.containsKey(recipe.recipeType)) {
+                recipes.add(recipe);
+            } else {
+                source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.not_member", recipe.getId().toString()));
+            }
+        }
+        withIndexes(source, recipes, indexes -> {
+            PlayerSession playerSession = playerSession(player);
+            for (GTRecipe recipe : recipes) {
+                RecipeTypeIndexCache.PreparedRecipeType prepared = indexes.get(recipe.recipeType);
+                ConflictSession session = sessionFor(source, playerSession, prepared);
+                if (session.remove(indexed(prepared, recipe))) {
+                    if (session.size() == 0) playerSession.types.remove(recipe.recipeType);
+                    source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.removed", recipe.getId().toString()), false);
+                } else {
+                    source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.not_member", recipe.getId().toString()));
+                }
+            }
+        });
+        return 1;
+    }
+
+    private static int runCheck(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        UUID player = playerId(source);
+        List<GTRecipe> recipes = resolveRecipes(source, StringArgumentType.getString(context, "recipe_id"));
+        withIndexes(source, recipes, indexes -> {
+            PlayerSession playerSession = playerSession(player);
+            for (GTRecipe recipe : recipes) {
+                RecipeTypeIndexCache.PreparedRecipeType prepared = indexes.get(recipe.recipeType);
+                ConflictSession session = sessionFor(source, playerSession, prepared);
+                IConflictRecipe conflictRecipe = indexed(prepared, recipe);
+                long start = System.nanoTime();
+                ConflictWitness witness = session.check(conflictRecipe);
+                String micros = String.format("%.1f", (System.nanoTime() - start) / 1000.0);
+                if (witness == null) {
+                    source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.check.safe", recipe.getId().toString(), micros), false);
+                } else {
+                    source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.check.conflict", recipe.getId().toString(), ConflictCommand.formatCover(witness.covered(), witness.cover()), micros));
+                }
+            }
+        });
+        return 1;
+    }
+
+    private static int runShow(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        PlayerSession player = playerSession(playerId(source));
+        if (player.types.isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.empty"), false);
+            return 1;
+        }
+        for (Map.Entry<GTRecipeType, TypeSession> entry : player.types.entrySet()) {
+            Set<IConflictRecipe> members = entry.getValue().session().members();
+            StringJoiner ids = new StringJoiner(", ");
+            for (IConflictRecipe member : members) ids.add(ConflictCommand.recipeId(member));
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.show", entry.getKey().registryName, members.size(), ids.toString()), false);
+        }
+        return 1;
+    }
+
+    private static int runClear(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        SESSIONS.remove(playerId(source));
+        source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.cleared"), false);
+        return 1;
+    }
+
+    // --- 辅助方法 ---
+
+    private static UUID playerId(CommandSourceStack source) throws CommandSyntaxException {
+        if (!source.isPlayer()) throw ConflictCommand.ERROR_NOT_PLAYER.create();
+        return source.getPlayer().getUUID();
+    }
+
+    private static PlayerSession playerSession(UUID player) {
+        return SESSIONS.computeIfAbsent(player, uuid -> new PlayerSession());
+    }
+
+    /** 在所需的配方类型索引都准备好之后、在服务器主线程上执行的会话操作。 */
+    @FunctionalInterface
+    private interface IndexedAction {
+        void run(Map<GTRecipeType, RecipeTypeIndexCache.PreparedRecipeType> indexes);
+    }
+
+    /**
+     * 获取这些配方所属类型的索引 (见 {@link RecipeTypeIndexCache#getAsync})，然后执行操作。
+     * 索引都已构建时立即执行；否则告诉玩家正在准备，构建完成后通过 {@code server.execute} 回到主线程执行，
+     * 主线程不会等待构建 (第一次使用某个配方类型或每次重载之后)。
+     */
+    private static void withIndexes(CommandSourceStack source, List<GTRecipe> recipes, IndexedAction action) {
+        RecipeManager recipeManager = source.getServer().getRecipeManager();
+        Map<GTRecipeType, CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures = new LinkedHashMap<>();
+        for (GTRecipe recipe : recipes) futures.computeIfAbsent(recipe.recipeType, type -> RecipeTypeIndexCache.getAsync(recipeManager, type));
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new));
+        if (all.isDone() && !all.isCompletedExceptionally()) {
+            action.run(joinAll(futures));
+            return;
+        }
+        if (!all.isDone()) {
+            int pending = (int) futures.values().stream().filter(future -> !future.isDone()).count();
+            source.sendSuccess(() -> Component.translatable("commands.remakefactory.conflict.session.preparing", pending), false);
+        }
+        all.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                LOGGER.error(Component.translatable("log.remakefactory.conflict.error.session_prepare").getString(), error);
+                source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.prepare_failed"));
+                return;
+            }
+            action.run(joinAll(futures));
+        }, source.getServer());
+    }
+
+    private static Map<GTRecipeType, RecipeTypeIndexCache.PreparedRecipeType> joinAll(Map<GTRecipeType, CompletableFuture<RecipeTypeIndexCache.PreparedRecipeType>> futures) {
+        Map<GTRecipeType, RecipeTypeIndexCache.PreparedRecipeType> indexes = new HashMap<>();
+        futures.forEach((type, future) -> indexes.put(type, future.join()));
+        return indexes;
+    }
+
+    /**
+     * 获取玩家在某个配方类型上的会话。如果缓存的索引已被重建 (例如数据包重载)，
+     * 就把原有成员映射到新索引中的配方并重新加入，此后的操作继续保持增量。
+     * 重载后不再存在或者与其余成员冲突的成员会被移除，并告诉玩家。
+     */
+    private static ConflictSession sessionFor(CommandSourceStack source, PlayerSession player, RecipeTypeIndexCache.PreparedRecipeType prepared) {
+        GTRecipeType recipeType = prepared.recipeType();
+        TypeSession current = player.types.get(recipeType);
+        if (current != null && current.prepared() == prepared) return current.session();
+
+        ConflictSession session = new ConflictSession(prepared.scopeIndex());
+        if (current != null) {
+            for (IConflictRecipe member : current.session().members()) {
+                String id = ConflictCommand.recipeId(member);
+                IConflictRecipe migrated = member.getUnderlyingRecipe() instanceof GTRecipe gtRecipe ? prepared.recipe(gtRecipe.getId()) : null;
+                if (migrated == null) {
+                    source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.migrated_missing", id, recipeType.registryName));
+                    continue;
+                }
+                ConflictWitness witness = session.add(migrated);
+                if (witness != null) {
+                    source.sendFailure(Component.translatable("commands.remakefactory.conflict.session.migrated_conflict", id, recipeType.registryName, ConflictCommand.formatCover(witness.covered(), witness.cover())));
+                }
+            }
+        }
+        player.types.put(recipeType, new TypeSession(prepared, session));
+        return session;
+    }
+
+    /**
+     * 按配方ID取索引中已解析输入的配方对象，不需要解析。
+     * 只有配方不在索引中时 (索引来自重载之前的配方管理器) 才现场解析。
+     */
+    private static IConflictRecipe indexed(RecipeTypeIndexCache.PreparedRecipeType prepared, GTRecipe recipe) {
+        IConflictRecipe conflictRecipe = prepared.recipe(recipe.getId());
+        return conflictRecipe != null ? conflictRecipe : new GTCEuConflictRecipe(recipe);
+    }
+
+    /**
+     * 解析以空白分隔的配方ID。无效的ID会被汇总报告，但不会中断其余ID的处理。
+     */
+    private static List<GTRecipe> resolveRecipes(CommandSourceStack source, String recipeIdsStr) {
+        RecipeManager recipeManager = source.getServer().getRecipeManager();
+        List<GTRecipe> recipes = new ArrayList<>();
+        List<String> invalidIds = new ArrayList<>();
+        for (String idStr : recipeIdsStr.split("\\s+")) {
+            if (idStr.isEmpty()) continue;
+            ResourceLocation recipeId = ResourceLocation.tryParse(idStr);
+            Optional<GTRecipe> recipe = recipeId == null ? Optional.empty() : recipeManager.byKey(recipeId)
+                    .filter(GTRecipe.class::isInstance)
+                    .map(GTRecipe.class::cast);
+            recipe.ifPresentOrElse(recipes::add, () -> invalidIds.add(idStr));
+        }
+        if (!invalidIds.isEmpty()) {
+            source.sendFailure(Component.translatable("commands.remakefactory.error.invalid_ids", String.join(", ", invalidIds)));
+        }
+        return recipes;
+    }
+}
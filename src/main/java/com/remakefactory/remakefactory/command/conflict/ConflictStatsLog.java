@@ -0,0 +1,115 @@
+package com.remakefactory.remakefactory.command.conflict;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.remakefactory.remakefactory.Remakefactory;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverPool;
+import com.remakefactory.remakefactory.util.recipe.conflict.SolverStats;
+import com.remakefactory.remakefactory.util.recipe.conflict.TagMatching;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.ModList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冲突分析的统计输出 (见 {@link SolverStats})：
+ * 配置 {@code conflict.verbose} 开启时在聊天中显示计数器和各阶段耗时；
+ * 每次分析都作为一行 JSON 追加到 config/remakefactory/conflict_stats.jsonl，
+ * 记录中带有环境指纹 (Mod 及其版本、数据包)，以便跨整合包版本比较耗时。
+ */
+final class ConflictStatsLog {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+    private static final String FILE = "config/remakefactory/conflict_stats.jsonl";
+    private static final Gson GSON = new Gson();
+
+    private ConflictStatsLog() {}
+
+    /**
+     * 一次分析的概况。
+     *
+     * @param recipe      必须配方的ID。
+     * @param mode        分析模式：single、multi 或 multi_threaded。
+     * @param recipes     参与分析的配方数量。
+     * @param result      结果集合的大小。
+     * @param nodes       展开的搜索节点数。
+     * @param environment 环境指纹 (只能在主线程上计算，见 {@link com.remakefactory.remakefactory.util.recipe.conflict.PreparedRecipeDiskCache#environmentFingerprint()})。
+     */
+    record Run(String recipe, String mode, int recipes, int result, long nodes, long environment) {}
+
+    /**
+     * 聊天中显示的统计：一行计数器，一行各阶段耗时。
+     */
+    static List<Component> summary(SolverStats stats, long nodes) {
+        List<Component> lines = new ArrayList<>(2);
+        lines.add(Component.translatable("commands.remakefactory.conflict.stats.counters", nodes,
+                stats.get(SolverStats.Counter.SCOPE_CHECKS),
+                stats.get(SolverStats.Counter.SUBSET_CHECKS),
+                stats.get(SolverStats.Counter.INTERNAL_CHECKS),
+                stats.get(SolverStats.Counter.INTERNAL_CONFLICTS),
+                stats.get(SolverStats.Counter.EXTERNAL_SCANS),
+                stats.get(SolverStats.Counter.EXTERNAL_CONFLICTS),
+                stats.get(SolverStats.Counter.BOUND_PRUNES),
+                stats.get(SolverStats.Counter.CHILD_PRUNES),
+                stats.get(SolverStats.Counter.BUDGET_CUTOFFS)));
+        StringJoiner phases = new StringJoiner(", ");
+        for (SolverStats.Phase phase : SolverStats.Phase.values()) {
+            long nanos = stats.phaseNanos(phase);
+            if (nanos > 0) phases.add(phase.id() + " " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        }
+        lines.add(Component.translatable("commands.remakefactory.conflict.stats.phases", phases.toString()));
+        return lines;
+    }
+
+    /**
+     * 追加一行记录。写入失败只记录日志，不影响分析结果。
+     */
+    static void append(MinecraftServer server, Run run, SolverStats stats) {
+        JsonObject record = new JsonObject();
+        record.addProperty("time", Instant.now().toString());
+        record.addProperty("version", ModList.get().getModContainerById(Remakefactory.MODID)
+                .map(container -> container.getModInfo().getVersion().toString()).orElse("unknown"));
+        record.addProperty("environment", Long.toHexString(run.environment()));
+        record.addProperty("tag_matching", TagMatching.isEnabled());
+        record.addProperty("solver_threads", SolverPool.get().getParallelism());
+        record.addProperty("recipe", run.recipe());
+        record.addProperty("mode", run.mode());
+        record.addProperty("recipes", run.recipes());
+        record.addProperty("result", run.result());
+        record.addProperty("nodes", run.nodes());
+        record.addProperty("total_us", TimeUnit.NANOSECONDS.toMicros(stats.elapsedNanos()));
+
+        JsonObject counters = new JsonObject();
+        for (SolverStats.Counter counter : SolverStats.Counter.values()) counters.addProperty(counter.id(), stats.get(counter));
+        record.add("counters", counters);
+        JsonObject phases = new JsonObject();
+        for (SolverStats.Phase phase : SolverStats.Phase.values()) {
+            phases.addProperty(phase.id(), TimeUnit.NANOSECONDS.toMicros(stats.phaseNanos(phase)));
+        }
+        record.add("phases_us", phases);
+
+        write(server.getFile(FILE).toPath(), GSON.toJson(record) + System.lineSeparator());
+    }
+
+    // 多个任务可能同时完成
+    private static synchronized void write(Path file, String line) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warn(Component.translatable("log.remakefactory.conflict.warn.stats_write", file).getString(), e);
+        }
+    }
+}
@@ -30,9 +30,11 @@ public final class Config {
      */
     public static final class CommonConfig {
         public final RecipeHijacker recipeHijacker;
+        public final Conflict conflict;
 
         public CommonConfig(ForgeConfigSpec.Builder builder) {
             this.recipeHijacker = new RecipeHijacker(builder);
+            this.conflict = new Conflict(builder);
         }
     }
 
@@ -102,5 +104,54 @@ public final class Config {
             builder.pop();
         }
     }
+
+    /**
+     * Settings for the recipe conflict analysis commands (/ref conflict).
+     */
+    public static final class Conflict {
+        public final ForgeConfigSpec.BooleanValue tagMatching;
+        public final ForgeConfigSpec.BooleanValue verbose;
+        public final ForgeConfigSpec.IntValue solverThreads;
+        public final ForgeConfigSpec.IntValue jobWorkers;
+        public final ForgeConfigSpec.IntValue maxJobsPerPlayer;
+        public final ForgeConfigSpec.IntValue maxQueuedJobs;
+
+        public Conflict(ForgeConfigSpec.Builder builder) {
+            builder.comment("Settings for the recipe conflict analysis commands.")
+                    .translation("config.remakefactory.conflict")
+                    .push("conflict");
+
+            this.tagMatching = builder
+                    .comment("If true, a tag input is treated as satisfiable by any of its member items (and by narrower tags), so recipes that only overlap through tags are reported as conflicts. If false, inputs are only compared by their exact item, tag or fluid id.")
+                    .translation("config.remakefactory.conflict.tag_matching")
+                    .define("tagMatching", true);
+
+            this.verbose = builder
+                    .comment("If true, conflict analyses also print solver statistics (checks performed, prunes and time per phase) to chat. The statistics are always appended to config/remakefactory/conflict_stats.jsonl.")
+                    .translation("config.remakefactory.conflict.verbose")
+                    .define("verbose", false);
+
+            this.solverThreads = builder
+                    .comment("Number of threads used by the conflict solver for parallel search. 0 uses the number of CPU cores minus one, leaving a core for the server thread.")
+                    .translation("config.remakefactory.conflict.solver_threads")
+                    .defineInRange("solverThreads", 0, 0, 256);
+
+            this.jobWorkers = builder
+                    .comment("Maximum number of conflict analysis jobs that run at the same time. Further jobs wait in the queue.")
+                    .translation("config.remakefactory.conflict.job_workers")
+                    .defineInRange("jobWorkers", 2, 1, 16);
+
+            this.maxJobsPerPlayer = builder
+                    .comment("Maximum number of conflict analysis jobs a single player (or the console) may have running at the same time. Further jobs from that player wait in the queue.")
+                    .translation("config.remakefactory.conflict.max_jobs_per_player")
+                    .defineInRange("maxJobsPerPlayer", 1, 1, 16);
+
+            this.maxQueuedJobs = builder
+                    .comment("Maximum number of conflict analysis jobs waiting in the queue. New jobs are rejected while the queue is full. Smaller jobs are started first.")
+                    .translation("config.remakefactory.conflict.max_queued_jobs")
+                    .defineInRange("maxQueuedJobs", 16, 1, 1000);
+            builder.pop();
+        }
+    }
     private Config() {}
 }
\ No newline at end of file
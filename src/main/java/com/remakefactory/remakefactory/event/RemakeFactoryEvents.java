@@ -2,7 +2,15 @@ package com.remakefactory.remakefactory.event;
 
 import com.remakefactory.remakefactory.Remakefactory;
 import com.remakefactory.remakefactory.command.RemakeFactoryCommands;
+import com.remakefactory.remakefactory.command.conflict.ConflictJobs;
+import com.remakefactory.remakefactory.command.conflict.ConflictSessions;
+import com.remakefactory.remakefactory.util.recipe.conflict.RecipeTypeIndexCache;
+import com.remakefactory.remakefactory.util.recipe.conflict.TagMatching;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
@@ -23,4 +31,34 @@ public final class RemakeFactoryEvents {
     public static void onRegisterCommands(RegisterCommandsEvent event) {
         RemakeFactoryCommands.register(event.getDispatcher());
     }
+
+    /**
+     * Drops the cached conflict indexes whenever datapacks (and with them recipes) are reloaded.
+     * @param event The event used to register server data reload listeners.
+     */
+    @SubscribeEvent
+    public static void onAddReloadListeners(AddReloadListenerEvent event) {
+        event.addListener((ResourceManagerReloadListener) resourceManager -> RecipeTypeIndexCache.invalidate());
+    }
+
+    /**
+     * Drops the cached tag members once the reloaded tags are bound to the registries. Reload listeners run before that,
+     * so a conflict task still running on the solver pool during /reload may have refilled the cache with the old members.
+     * @param event The tags updated event.
+     */
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) TagMatching.invalidate();
+    }
+
+    /**
+     * Cancels the running conflict jobs and releases the cached conflict indexes and the players' conflict sessions when the server shuts down.
+     * @param event The server stopped event.
+     */
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        ConflictJobs.cancelAll();
+        RecipeTypeIndexCache.invalidate();
+        ConflictSessions.clear();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.remakefactory.remakefactory.mixin.accessor;
+
+import net.minecraft.world.item.crafting.Ingredient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Exposes the raw values of a vanilla Ingredient, so the conflict analysis can read
+ * its item or tag directly instead of serializing the ingredient to JSON.
+ */
+@Mixin(Ingredient.class)
+public interface IngredientAccessor {
+
+    @Accessor("values")
+    Ingredient.Value[] remakefactory$getValues();
+}
@@ -0,0 +1,15 @@
+package com.remakefactory.remakefactory.mixin.accessor;
+
+import net.minecraft.world.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Exposes the item stack of an Ingredient.ItemValue.
+ */
+@Mixin(targets = "net.minecraft.world.item.crafting.Ingredient$ItemValue")
+public interface IngredientItemValueAccessor {
+
+    @Accessor("item")
+    ItemStack remakefactory$getItem();
+}
@@ -0,0 +1,16 @@
+package com.remakefactory.remakefactory.mixin.accessor;
+
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Exposes the tag of an Ingredient.TagValue.
+ */
+@Mixin(targets = "net.minecraft.world.item.crafting.Ingredient$TagValue")
+public interface IngredientTagValueAccessor {
+
+    @Accessor("tag")
+    TagKey<Item> remakefactory$getTag();
+}
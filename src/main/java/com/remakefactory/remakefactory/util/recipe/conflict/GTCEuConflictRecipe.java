@@ -1,7 +1,5 @@
 package com.remakefactory.remakefactory.util.recipe.conflict;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.gregtechceu.gtceu.api.capability.recipe.FluidRecipeCapability;
 import com.gregtechceu.gtceu.api.capability.recipe.ItemRecipeCapability;
 import com.gregtechceu.gtceu.api.recipe.GTRecipe;
@@ -9,23 +7,40 @@ import com.gregtechceu.gtceu.api.recipe.content.Content;
 import com.gregtechceu.gtceu.api.recipe.ingredient.FluidIngredient;
 import com.gregtechceu.gtceu.api.recipe.ingredient.IntCircuitIngredient;
 import com.gregtechceu.gtceu.api.recipe.ingredient.SizedIngredient;
+import com.gregtechceu.gtceu.common.item.IntCircuitBehaviour;
+import com.remakefactory.remakefactory.mixin.accessor.IngredientAccessor;
+import com.remakefactory.remakefactory.mixin.accessor.IngredientItemValueAccessor;
+import com.remakefactory.remakefactory.mixin.accessor.IngredientTagValueAccessor;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.Ingredient;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * 针对 GTCEu 的 GTRecipe 的 IConflictRecipe 具体实现。
+ * <p>
+ * 输入在构造时直接从原料对象中提取 (不经过 JSON 序列化) 并驻留为不可变的多重集，
+ * 因此实例创建后即可在求解线程之间安全共享。
  */
 public class GTCEuConflictRecipe implements IConflictRecipe {
 
     private final GTRecipe recipe;
-    private Map<String, Integer> memoizedInputs;
+    private final InputMultiset inputs;
 
     public GTCEuConflictRecipe(GTRecipe recipe) {
+        this(recipe, parseInputs(recipe));
+    }
+
+    /**
+     * 使用已经解析好的输入 (例如附加了标签供给的输入，见 {@link TagMatching})。
+     */
+    public GTCEuConflictRecipe(GTRecipe recipe, InputMultiset inputs) {
         this.recipe = recipe;
+        this.inputs = inputs;
     }
 
     @Override
@@ -34,55 +49,33 @@ public class GTCEuConflictRecipe implements IConflictRecipe {
     }
 
     @Override
-    public Map<String, Integer> getInputsAsMultiset() {
-        if (this.memoizedInputs != null) {
-            return this.memoizedInputs;
-        }
-
-        Map<String, Integer> inputs = new HashMap<>();
-        parseContentMap(inputs, this.recipe.inputs);
+    public InputMultiset getInputs() {
+        return this.inputs;
+    }
 
-        this.memoizedInputs = inputs;
-        return this.memoizedInputs;
+    /**
+     * 提取一个配方的输入需求。无法识别的原料 (例如由多个物品组成的复合原料) 不参与冲突判断。
+     */
+    static InputMultiset parseInputs(GTRecipe recipe) {
+        InputMultiset.Builder inputs = new InputMultiset.Builder();
+        parseContentMap(inputs, recipe.inputs);
+        return inputs.build();
     }
 
-    private void parseContentMap(Map<String, Integer> inputs, Map<?, List<Content>> contentMap) {
+    private static void parseContentMap(InputMultiset.Builder inputs, Map<?, List<Content>> contentMap) {
         // --- 处理物品输入 ---
         List<Content> itemContents = contentMap.get(ItemRecipeCapability.CAP);
         if (itemContents != null) {
             for (Content content : itemContents) {
-                try {
-                    Object ingredientObj = content.content;
-                    String key = null;
-                    int amount = 0;
-
-                    if (ingredientObj instanceof SizedIngredient si) {
-                        amount = si.getAmount();
-                        JsonElement json = si.toJson();
-                        if (json.isJsonObject()) {
-                            JsonObject ingredientJson = json.getAsJsonObject().getAsJsonObject("ingredient");
-                            if (ingredientJson != null) {
-                                if (ingredientJson.has("tag")) {
-                                    key = "tag:" + ingredientJson.get("tag").getAsString();
-                                } else if (ingredientJson.has("item")) {
-                                    key = "item:" + ingredientJson.get("item").getAsString();
-                                }
-                            }
-                        }
-                    } else if (ingredientObj instanceof IntCircuitIngredient ici) {
-                        amount = 1;
-                        JsonElement json = ici.toJson();
-                        if (json.isJsonObject()) {
-                            int configValue = json.getAsJsonObject().get("configuration").getAsInt();
-                            key = "circuit:" + configValue;
-                        }
-                    }
-
-                    if (key != null) {
-                        inputs.put(key, inputs.getOrDefault(key, 0) + amount);
+                Object ingredientObj = content.content;
+                if (ingredientObj instanceof IntCircuitIngredient ici) {
+                    ItemStack[] stacks = ici.getItems();
+                    if (stacks.length > 0) {
+                        inputs.add("circuit:" + IntCircuitBehaviour.getCircuitConfiguration(stacks[0]), 1);
                     }
-                } catch (Exception e) {
-                    // 忽略解析失败的 content
+                } else if (ingredientObj instanceof SizedIngredient si) {
+                    String key = keyOf(si.getInner());
+                    if (key != null) inputs.add(key, si.getAmount());
                 }
             }
         }
@@ -97,13 +90,38 @@ public class GTCEuConflictRecipe implements IConflictRecipe {
                     if (fluidAmount > 0 && fi.getStacks().length > 0 && !fi.getStacks()[0].isEmpty()) {
                         com.lowdragmc.lowdraglib.side.fluid.FluidStack ldlFs = fi.getStacks()[0];
                         String key = "fluid:" + BuiltInRegistries.FLUID.getKey(ldlFs.getFluid());
-                        inputs.put(key, inputs.getOrDefault(key, 0) + (int) fluidAmount);
+                        inputs.add(key, fluidAmount);
                     }
                 }
             }
         }
     }
 
+    /**
+     * 原料键："tag:" 加单个标签，或 "item:" 加单个物品。
+     * 原版原料直接读取它唯一的值；其他原料 (例如 NBT 原料) 只有在所有候选都是同一个物品时才视为该物品。
+     */
+    private static String keyOf(Ingredient ingredient) {
+        if (ingredient.getClass() == Ingredient.class) {
+            Ingredient.Value[] values = ((IngredientAccessor) ingredient).remakefactory$getValues();
+            if (values.length != 1) return null;
+            if (values[0] instanceof IngredientTagValueAccessor tagValue) {
+                return "tag:" + tagValue.remakefactory$getTag().location();
+            }
+            if (values[0] instanceof IngredientItemValueAccessor itemValue) {
+                return "item:" + BuiltInRegistries.ITEM.getKey(itemValue.remakefactory$getItem().getItem());
+            }
+            return null;
+        }
+        ItemStack[] stacks = ingredient.getItems();
+        if (stacks.length == 0) return null;
+        Item item = stacks[0].getItem();
+        for (ItemStack stack : stacks) {
+            if (stack.getItem() != item) return null;
+        }
+        return "item:" + BuiltInRegistries.ITEM.getKey(item);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -116,4 +134,4 @@ public class GTCEuConflictRecipe implements IConflictRecipe {
     public int hashCode() {
         return Objects.hash(recipe.getId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,312 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import com.gregtechceu.gtceu.api.recipe.GTRecipe;
+import com.gregtechceu.gtceu.api.recipe.GTRecipeType;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.server.ServerLifecycleHooks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 已准备配方输入的磁盘缓存：每个配方类型一个紧凑的二进制文件，位于 config/remakefactory/conflict_cache 下。
+ * <p>
+ * 文件保存该类型用到的原料键表 (文件内的局部ID) 和每个配方的需求与供给，读取时一次性读入堆内缓冲区解码
+ * (不使用内存映射，映射在被回收前会锁住文件，使 Windows 上的覆盖和清除失败)，
+ * 把局部ID重新驻留为全局ID，直接构造 {@link GTCEuConflictRecipe}，跳过驻留、多重集构建和标签展开。
+ * <p>
+ * 文件以指纹为键：格式版本、标签匹配开关、已加载的Mod及其版本、启用的数据包、配方来源文件 (世界的 datapacks 目录和
+ * KubeJS 服务端脚本与数据，见 {@link #CONTENT_SOURCES}) 的路径、大小和修改时间，以及该类型全部配方的ID。
+ * 指纹刻意不遍历配方的原料 (那与解析本身的开销相当，命中缓存就失去了意义)，因此脚本或数据包原地修改已有配方时，
+ * 只要来源文件有改动缓存就会失效；其他方式修改的配方可以用 /ref conflict cache clear 手动清除缓存。
+ * 启用标签匹配时，文件中还记录了用到的每个标签的成员，读取时与当前标签比较，标签成员改变同样视为未命中。
+ * 指纹不一致、文件损坏或配方ID对应不上时视为未命中，调用方重新解析并覆盖文件。
+ */
+public final class PreparedRecipeDiskCache {
+
+    private static final Logger LOGGER = LogManager.getLogger("ConflictOptimizer");
+
+    private static final String DIRECTORY = "config/remakefactory/conflict_cache";
+    private static final int MAGIC = 0x52464343; // "RFCC"
+    private static final int FORMAT_VERSION = 2;
+    // 配方内容的来源目录 (相对服务器目录)；世界的 datapacks 目录另外加入
+    private static final List<String> CONTENT_SOURCES = List.of("kubejs/server_scripts", "kubejs/data");
+    // 供给与需求相同时，供给长度写为此值
+    private static final int SUPPLY_SAME_AS_DEMAND = -1;
+
+    private PreparedRecipeDiskCache() {} // 静态工具类，无需实例化
+
+    /**
+     * 尝试从磁盘读取一个配方类型的已准备配方。
+     *
+     * @param rawRecipes  该类型当前的全部配方 (已去重)。
+     * @param fingerprint 见 {@link #fingerprint(long, List, boolean)}。
+     * @param tagMatching 是否启用标签匹配 (启用时检查文件中记录的标签成员)。
+     * @return 与 rawRecipes 顺序相同的冲突配方；未命中时返回 null。
+     */
+    static List<IConflictRecipe> load(GTRecipeType recipeType, List<GTRecipe> rawRecipes, long fingerprint, boolean tagMatching) {
+        Path file = fileFor(recipeType);
+        if (file == null || !Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 文件很小，读入堆内缓冲区后立即关闭，不留下映射
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) return null;
+            }
+            buffer.flip();
+            return decode(buffer, rawRecipes, fingerprint, tagMatching);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn(Component.translatable("log.remakefactory.conflict.warn.cache_read", file).getString(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 把一个配方类型的已准备配方写入磁盘。写入失败只记录日志，不影响分析。
+     */
+    static void save(GTRecipeType recipeType, List<IConflictRecipe> prepared, long fingerprint, boolean tagMatching) {
+        Path file = fileFor(recipeType);
+        if (file == null) return;
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, encode(prepared, fingerprint, tagMatching));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn(Component.translatable("log.remakefactory.conflict.warn.cache_write", file).getString(), e);
+        }
+    }
+
+    /**
+     * 删除所有缓存文件。
+     *
+     * @return 删除的文件数量。
+     */
+    public static int clear() throws IOException {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null) return 0;
+        Path directory = server.getFile(DIRECTORY).toPath();
+        if (!Files.isDirectory(directory)) return 0;
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.delete(file);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    // ==================================================================================
+    // ==                                 文件格式                                     ==
+    // ==================================================================================
+    //
+    // int magic, int version, long fingerprint
+    // int keyCount, keyCount * (int byteLength, UTF-8 bytes)
+    // long tagFingerprint (键表中全部标签的成员，未启用标签匹配时为 0)
+    // int recipeCount, recipeCount * (
+    //     int idByteLength, UTF-8 bytes,
+    //     int demandSize, demandSize * (int localId, long count),
+    //     int supplySize (-1 表示与需求相同), supplySize * (int localId, long count))
+
+    private static byte[] encode(List<IConflictRecipe> prepared, long fingerprint, boolean tagMatching) {
+        // 全局ID -> 文件内的局部ID
+        Map<Integer, Integer> localIds = new HashMap<>();
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> recipeIds = new ArrayList<>(prepared.size());
+        List<Integer> globalIds = new ArrayList<>();
+        int size = 4 + 4 + 8 + 4 + 8 + 4;
+        for (IConflictRecipe recipe : prepared) {
+            byte[] id = ((GTRecipe) recipe.getUnderlyingRecipe()).getId().toString().getBytes(StandardCharsets.UTF_8);
+            recipeIds.add(id);
+            InputMultiset demand = recipe.getInputs();
+            InputMultiset supply = demand.supply();
+            size += 4 + id.length + 4 + 12 * demand.size() + 4 + (supply == demand ? 0 : 12 * supply.size());
+            for (InputMultiset multiset : supply == demand ? List.of(demand) : List.of(demand, supply)) {
+                for (int j = 0; j < multiset.size(); j++) {
+                    int global = multiset.id(j);
+                    if (localIds.putIfAbsent(global, keys.size()) == null) {
+                        byte[] key = IngredientInterner.keyOf(global).getBytes(StandardCharsets.UTF_8);
+                        keys.add(key);
+                        globalIds.add(global);
+                        size += 4 + key.length;
+                    }
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint);
+        buffer.putInt(keys.size());
+        for (byte[] key : keys) buffer.putInt(key.length).put(key);
+        buffer.putLong(tagMatching ? tagFingerprint(globalIds.stream().mapToInt(Integer::intValue).toArray()) : 0);
+        buffer.putInt(prepared.size());
+        for (int i = 0; i < prepared.size(); i++) {
+            buffer.putInt(recipeIds.get(i).length).put(recipeIds.get(i));
+            InputMultiset demand = prepared.get(i).getInputs();
+            InputMultiset supply = demand.supply();
+            putMultiset(buffer, demand, localIds);
+            if (supply == demand) {
+                buffer.putInt(SUPPLY_SAME_AS_DEMAND);
+            } else {
+                putMultiset(buffer, supply, localIds);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void putMultiset(ByteBuffer buffer, InputMultiset multiset, Map<Integer, Integer> localIds) {
+        buffer.putInt(multiset.size());
+        for (int j = 0; j < multiset.size(); j++) {
+            buffer.putInt(localIds.get(multiset.id(j))).putLong(multiset.count(j));
+        }
+    }
+
+    private static List<IConflictRecipe> decode(ByteBuffer buffer, List<GTRecipe> rawRecipes, long fingerprint, boolean tagMatching) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != fingerprint) return null;
+
+        int[] globalIds = new int[buffer.getInt()];
+        for (int k = 0; k < globalIds.length; k++) globalIds[k] = IngredientInterner.intern(getString(buffer));
+        // 供给由标签成员决定，成员改变后文件中的供给已经过时
+        long tagFingerprint = buffer.getLong();
+        if (tagMatching && tagFingerprint != tagFingerprint(globalIds)) return null;
+
+        int recipeCount = buffer.getInt();
+        if (recipeCount != rawRecipes.size()) return null;
+        List<IConflictRecipe> recipes = new ArrayList<>(recipeCount);
+        for (int i = 0; i < recipeCount; i++) {
+            // 写入时的顺序与 rawRecipes 相同，ID 不一致说明配方列表已经改变
+            GTRecipe rawRecipe = rawRecipes.get(i);
+            if (!rawRecipe.getId().toString().equals(getString(buffer))) return null;
+            InputMultiset demand = getMultiset(buffer, buffer.getInt(), globalIds);
+            int supplySize = buffer.getInt();
+            InputMultiset inputs = supplySize == SUPPLY_SAME_AS_DEMAND ? demand : demand.withSupply(getMultiset(buffer, supplySize, globalIds));
+            recipes.add(new GTCEuConflictRecipe(rawRecipe, inputs));
+        }
+        return recipes;
+    }
+
+    private static InputMultiset getMultiset(ByteBuffer buffer, int size, int[] globalIds) {
+        InputMultiset.Builder builder = new InputMultiset.Builder();
+        for (int j = 0; j < size; j++) builder.add(globalIds[buffer.getInt()], buffer.getLong());
+        return builder.build();
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ==================================================================================
+    // ==                                   指纹                                       ==
+    // ==================================================================================
+
+    /**
+     * 一个配方类型的指纹：环境指纹加上每个配方的ID，不遍历配方的原料。
+     *
+     * @param environment 见 {@link #environmentFingerprint()}。
+     * @param rawRecipes  该类型当前的全部配方 (已去重)。
+     */
+    static long fingerprint(long environment, List<GTRecipe> rawRecipes, boolean tagMatching) {
+        long hash = mix(environment, FORMAT_VERSION);
+        hash = mix(hash, tagMatching ? 1 : 0);
+        hash = mix(hash, rawRecipes.size());
+        for (GTRecipe recipe : rawRecipes) {
+            hash = mix(hash, stringHash(recipe.getId().toString()));
+        }
+        return hash;
+    }
+
+    /**
+     * 键表中每个标签的当前成员。
+     */
+    private static long tagFingerprint(int[] globalIds) {
+        long hash = 0;
+        for (int id : globalIds) {
+            String key = IngredientInterner.keyOf(id);
+            if (!key.startsWith("tag:")) continue;
+            hash = mix(hash, stringHash(key));
+            for (String member : TagMatching.memberKeys(id)) hash = mix(hash, stringHash(member));
+        }
+        return hash;
+    }
+
+    /**
+     * 已加载的Mod (含版本)、启用的数据包和配方来源文件。数据包列表只能在服务器主线程上读取。
+     * 每次配方管理器改变 (数据包重载) 时计算一次。
+     */
+    public static long environmentFingerprint() {
+        long hash = 0;
+        List<String> mods = new ArrayList<>();
+        ModList.get().getMods().forEach(mod -> mods.add(mod.getModId() + "@" + mod.getVersion()));
+        Collections.sort(mods);
+        for (String mod : mods) hash = mix(hash, stringHash(mod));
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server != null) {
+            for (String pack : server.getPackRepository().getSelectedIds()) hash = mix(hash, stringHash(pack));
+            hash = mix(hash, sourceFingerprint(server.getWorldPath(LevelResource.DATAPACK_DIR)));
+            for (String source : CONTENT_SOURCES) hash = mix(hash, sourceFingerprint(server.getFile(source).toPath()));
+        }
+        return hash;
+    }
+
+    /**
+     * 目录下所有文件的相对路径、大小和修改时间 (不读取文件内容)；目录不存在时为 0。
+     */
+    private static long sourceFingerprint(Path directory) {
+        if (!Files.isDirectory(directory)) return 0;
+        List<String> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    entries.add(directory.relativize(file) + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis());
+                } catch (IOException e) {
+                    entries.add(directory.relativize(file) + "|?");
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // 无法列出时每次都视为改变，宁可重新解析也不使用可能过期的缓存
+            LOGGER.warn(Component.translatable("log.remakefactory.conflict.warn.cache_sources", directory).getString(), e);
+            return System.nanoTime();
+        }
+        Collections.sort(entries);
+        long hash = 0;
+        for (String entry : entries) hash = mix(hash, stringHash(entry));
+        return hash;
+    }
+
+    private static long stringHash(String value) {
+        // FNV-1a 64
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value + 0x9e3779b97f4a7c15L + (hash << 6) + (hash >>> 2);
+        return hash * 0xbf58476d1ce4e5b9L;
+    }
+
+    private static Path fileFor(GTRecipeType recipeType) {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null) return null;
+        ResourceLocation name = recipeType.registryName;
+        return server.getFile(DIRECTORY).toPath().resolve(name.getNamespace()).resolve(name.getPath().replace('/', '_') + ".bin");
+    }
+}
@@ -0,0 +1,117 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import com.gregtechceu.gtceu.api.recipe.GTRecipe;
+import com.gregtechceu.gtceu.api.recipe.GTRecipeType;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.crafting.RecipeManager;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务器范围内、按配方类型缓存的已准备索引。
+ * <p>
+ * 每个 {@link GTRecipeType} 的全部配方只在第一次被用到时包装为 {@link GTCEuConflictRecipe}，
+ * 并在 {@link SolverPool} 上后台并行解析出不可变的驻留多重集 (含存在性签名) 和倒排索引 {@link ScopeIndex}。
+ * 之后对同一台机器的分析直接复用，跳过包装和解析。解析结果还会写入 {@link PreparedRecipeDiskCache}，
+ * 服务器重启或重载后指纹未变时直接从磁盘读取。
+ * <p>
+ * 缓存与产生它的 {@link RecipeManager} 实例绑定：数据包重载会创建新的配方管理器，旧的索引随之失效。
+ * 切换标签感知匹配 ({@link TagMatching}) 的配置后缓存也会重建。
+ * 此外重载和服务器停止时也会主动调用 {@link #invalidate()} 释放内存。
+ */
+public final class RecipeTypeIndexCache {
+
+    /**
+     * 一个配方类型的已准备索引。创建后不可变，可在多个线程之间共享。
+     *
+     * @param recipeType  配方类型。
+     * @param recipes     该类型的全部配方 (输入已解析)。
+     * @param scopeIndex  以全部配方为范围的倒排索引。
+     * @param recipesById 按配方ID查找 recipes 中的配方。
+     */
+    public record PreparedRecipeType(GTRecipeType recipeType, List<IConflictRecipe> recipes, ScopeIndex scopeIndex,
+                                     Map<ResourceLocation, IConflictRecipe> recipesById) {
+
+        /**
+         * 按ID查找该类型中已准备的配方，不需要解析；不存在时返回 null。
+         */
+        public IConflictRecipe recipe(ResourceLocation id) {
+            return recipesById.get(id);
+        }
+    }
+
+    private static final Map<GTRecipeType, CompletableFuture<PreparedRecipeType>> CACHE = new ConcurrentHashMap<>();
+    private static RecipeManager owner;
+    private static boolean ownerTagMatching;
+    // 磁盘缓存指纹中与配方类型无关的部分，随配方管理器一起更新
+    private static long ownerEnvironment;
+
+    private RecipeTypeIndexCache() {} // 静态工具类，无需实例化
+
+    /**
+     * 获取 (必要时在后台开始构建) 某个配方类型的索引。
+     * 配方列表在调用线程 (应为服务器主线程) 上读取，包装与解析在求解线程池上进行。
+     */
+    public static CompletableFuture<PreparedRecipeType> getAsync(RecipeManager recipeManager, GTRecipeType recipeType) {
+        boolean tagMatching;
+        long environment;
+        synchronized (RecipeTypeIndexCache.class) {
+            tagMatching = TagMatching.isEnabled();
+            if (owner != recipeManager || ownerTagMatching != tagMatching) {
+                CACHE.clear();
+                owner = recipeManager;
+                ownerTagMatching = tagMatching;
+                ownerEnvironment = PreparedRecipeDiskCache.environmentFingerprint();
+            }
+            environment = ownerEnvironment;
+        }
+        CompletableFuture<PreparedRecipeType> future = CACHE.computeIfAbsent(recipeType, type -> {
+            List<GTRecipe> recipes = List.copyOf(recipeManager.getAllRecipesFor(type));
+            return CompletableFuture.supplyAsync(() -> prepare(type, recipes, tagMatching, environment), SolverPool.get());
+        });
+        // 构建失败时不缓存异常，下次调用重新构建
+        future.whenComplete((prepared, error) -> {
+            if (error != null) CACHE.remove(recipeType, future);
+        });
+        return future;
+    }
+
+    /**
+     * 某个配方类型已经开始构建 (或已经构建完成) 的索引，不会开始新的构建；没有时返回 null。
+     * 与 {@link #getAsync} 一样应在服务器主线程上调用。
+     */
+    public static CompletableFuture<PreparedRecipeType> peekAsync(RecipeManager recipeManager, GTRecipeType recipeType) {
+        synchronized (RecipeTypeIndexCache.class) {
+            if (owner != recipeManager || ownerTagMatching != TagMatching.isEnabled()) return null;
+        }
+        return CACHE.get(recipeType);
+    }
+
+    /**
+     * 丢弃所有缓存的索引 (数据包重载、服务器停止时调用)。
+     */
+    public static void invalidate() {
+        synchronized (RecipeTypeIndexCache.class) {
+            CACHE.clear();
+            owner = null;
+        }
+        TagMatching.invalidate();
+    }
+
+    private static PreparedRecipeType prepare(GTRecipeType recipeType, List<GTRecipe> rawRecipes, boolean tagMatching, long environment) {
+        List<GTRecipe> unique = TagMatching.unique(rawRecipes);
+        long fingerprint = PreparedRecipeDiskCache.fingerprint(environment, unique, tagMatching);
+        // 优先使用磁盘缓存；未命中时立即解析并驻留输入 (含标签供给)，使之后的求解不再需要解析
+        List<IConflictRecipe> recipes = PreparedRecipeDiskCache.load(recipeType, unique, fingerprint, tagMatching);
+        if (recipes == null) {
+            recipes = TagMatching.prepareUnique(unique, tagMatching);
+            PreparedRecipeDiskCache.save(recipeType, recipes, fingerprint, tagMatching);
+        }
+        List<IConflictRecipe> list = List.copyOf(recipes);
+        Map<ResourceLocation, IConflictRecipe> byId = new HashMap<>(list.size() * 2);
+        for (int i = 0; i < list.size(); i++) byId.put(unique.get(i).getId(), list.get(i));
+        return new PreparedRecipeType(recipeType, list, ScopeIndex.of(list), Collections.unmodifiableMap(byId));
+    }
+}
@@ -0,0 +1,139 @@
+package com.remakefactory.remakefactory.util.recipe.conflict;
+
+import com.gregtechceu.gtceu.api.recipe.GTRecipe;
+import com.remakefactory.remakefactory.config.Config;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 把 {@link TagExpansion} 接入游戏：从物品注册表解析标签成员，并为一组 GT 配方构建带供给的冲突配方。
+ * <p>
+ * 每个标签的成员位图在第一次被用到时解析并缓存，数据包重载 (标签可能改变) 和服务器停止时通过 {@link #invalidate()} 丢弃。
+ * 重载时在新标签绑定到注册表之后 (TagsUpdatedEvent) 还会再丢弃一次，以免重载期间仍在运行的任务用旧标签重新填充缓存。
+ * 是否启用由配置 {@code conflict.tagMatching} 控制；关闭时配方只按原料键的字面相等比较，与之前完全相同。
+ */
+public final class TagMatching {
+
+    private static final String TAG_PREFIX = "tag:";
+    private static final long[] NO_MEMBERS = new long[0];
+    // 少于这么多配方时顺序准备，避免并行调度的开销
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    // 标签原料ID -> 成员物品的驻留ID位图
+    private static final Map<Integer, long[]> MEMBERS = new ConcurrentHashMap<>();
+
+    private TagMatching() {} // 静态工具类，无需实例化
+
+    /**
+     * 当前配置是否启用标签感知匹配。
+     */
+    public static boolean isEnabled() {
+        return Config.COMMON.conflict.tagMatching.get();
+    }
+
+    /**
+     * 把一组 GT 配方包装为冲突配方，保持顺序并按配方ID去重，输入在此立即解析。
+     * 启用标签匹配时，以这一组配方为范围计算供给 (标签只展开到组内被需求的标签和物品)。
+     * 配方较多时解析和展开在 {@link SolverPool} 上并行进行。
+     */
+    public static List<IConflictRecipe> prepare(Collection<GTRecipe> rawRecipes) {
+        return prepareUnique(unique(rawRecipes), isEnabled());
+    }
+
+    /**
+     * 保持顺序地按配方ID去重，并丢弃 null。
+     */
+    static List<GTRecipe> unique(Collection<GTRecipe> rawRecipes) {
+        List<GTRecipe> unique = new ArrayList<>(rawRecipes.size());
+        Set<ResourceLocation> seenIds = new HashSet<>(rawRecipes.size() * 2);
+        for (GTRecipe rawRecipe : rawRecipes) {
+            if (rawRecipe != null && seenIds.add(rawRecipe.getId())) unique.add(rawRecipe);
+        }
+        return unique;
+    }
+
+    /**
+     * 同 {@link #prepare(Collection)}，但优先复用已经构建的配方类型索引 (见 {@link RecipeTypeIndexCache})：
+     * 配方在某个索引中时直接取用其中的需求，不再解析，只有其余配方才会解析。
+     * 供给仍以这一组配方为范围重新计算。
+     */
+    public static List<IConflictRecipe> prepare(Collection<GTRecipe> rawRecipes, Collection<RecipeTypeIndexCache.PreparedRecipeType> indexes) {
+        if (indexes.isEmpty()) return prepare(rawRecipes);
+        List<GTRecipe> unique = unique(rawRecipes);
+        List<InputMultiset> demands = parallelMap(unique, recipe -> {
+            for (RecipeTypeIndexCache.PreparedRecipeType index : indexes) {
+                IConflictRecipe prepared = index.recipe(recipe.getId());
+                if (prepared != null) return prepared.getInputs().demand();
+            }
+            return GTCEuConflictRecipe.parseInputs(recipe);
+        });
+        return expandAll(unique, demands, isEnabled());
+    }
+
+    /**
+     * 同 {@link #prepare(Collection)}，但配方已经去重，并且显式指定是否启用标签匹配。
+     */
+    static List<IConflictRecipe> prepareUnique(List<GTRecipe> unique, boolean tagMatching) {
+        return expandAll(unique, parallelMap(unique, GTCEuConflictRecipe::parseInputs), tagMatching);
+    }
+
+    /**
+     * 以这一组配方为范围为每个需求附加供给，并包装为冲突配方。
+     */
+    private static List<IConflictRecipe> expandAll(List<GTRecipe> unique, List<InputMultiset> demands, boolean tagMatching) {
+        TagExpansion expansion = tagMatching ? TagExpansion.of(demands, TagMatching::members) : TagExpansion.NONE;
+        List<Integer> indices = new ArrayList<>(unique.size());
+        for (int i = 0; i < unique.size(); i++) indices.add(i);
+        return parallelMap(indices, i -> new GTCEuConflictRecipe(unique.get(i), expansion.expand(demands.get(i))));
+    }
+
+    /**
+     * 丢弃缓存的标签成员 (数据包重载、标签更新、服务器停止时调用)。
+     */
+    public static void invalidate() {
+        MEMBERS.clear();
+    }
+
+    /**
+     * 保持顺序的映射。元素足够多时在求解线程池中执行并行流，不占用公共线程池。
+     */
+    private static <T, R> List<R> parallelMap(List<T> items, Function<T, R> mapper) {
+        if (items.size() < PARALLEL_THRESHOLD) return items.stream().map(mapper).toList();
+        return SolverPool.get().submit(() -> items.parallelStream().map(mapper).toList()).join();
+    }
+
+    /**
+     * 标签当前的成员物品键 (已排序)，供磁盘缓存检查标签成员是否改变 (见 {@link PreparedRecipeDiskCache})。
+     */
+    static List<String> memberKeys(int tagId) {
+        BitSet bits = BitSet.valueOf(members(tagId));
+        List<String> keys = new ArrayList<>(bits.cardinality());
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) keys.add(IngredientInterner.keyOf(id));
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private static long[] members(int tagId) {
+        return MEMBERS.computeIfAbsent(tagId, TagMatching::resolve);
+    }
+
+    private static long[] resolve(int tagId) {
+        String key = IngredientInterner.keyOf(tagId);
+        ResourceLocation location = key.startsWith(TAG_PREFIX) ? ResourceLocation.tryParse(key.substring(TAG_PREFIX.length())) : null;
+        if (location == null) return NO_MEMBERS;
+
+        BitSet bits = new BitSet();
+        for (Holder<Item> holder : BuiltInRegistries.ITEM.getTagOrEmpty(TagKey.create(Registries.ITEM, location))) {
+            bits.set(IngredientInterner.intern("item:" + BuiltInRegistries.ITEM.getKey(holder.value())));
+        }
+        return bits.isEmpty() ? NO_MEMBERS : bits.toLongArray();
+    }
+}